@@ -0,0 +1,223 @@
+package com.github.loadup.capability.common.benchmark.crypto;
+
+/*-
+ * #%L
+ * loadup-common-benchmark
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.loadup.capability.common.util.crypto.AESEngine;
+import com.github.loadup.capability.common.util.crypto.AESGCMEngine;
+import com.github.loadup.capability.common.util.crypto.AESUtil;
+import com.github.loadup.capability.common.util.crypto.CryptoException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * AES加解密基准：对比每次初始化Cipher的旧写法、{@link AESUtil}字符串接口、缓存Cipher的{@link AESEngine}
+ * （数组、直接缓冲区、流式）与{@link AESGCMEngine}，载荷16B~16MB
+ *
+ * <p>运行：<code>java -cp benchmarks.jar com.github.loadup.capability.common.benchmark.crypto.AESBenchmark</code>，
+ * 依次以单线程和CPU核数个线程执行，并通过GC profiler输出分配速率（gc.alloc.rate.norm为每次操作分配的字节数）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AESBenchmark {
+
+    @Param({"16", "1024", "65536", "1048576", "16777216"})
+    private int payloadSize;
+
+    private String       base64Key;
+    private byte[]       plain;
+    private String       plainText;
+    private AESEngine    engine;
+    private AESGCMEngine gcm;
+    private byte[]       ecbCipherText;
+    private String       ecbBase64;
+    private byte[]       gcmCipherText;
+    private ByteBuffer   directPlain;
+    private ByteBuffer   directCipher;
+    private ByteBuffer   directOut;
+    private byte[]       arrayOut;
+
+    @Setup
+    public void setup() throws CryptoException {
+        byte[] key = new byte[16];
+        Random random = new Random(payloadSize);
+        random.nextBytes(key);
+        base64Key = Base64.encodeBase64String(key);
+        plain = new byte[payloadSize];
+        random.nextBytes(plain);
+        // 字符串接口只测ASCII原文，保证与字节载荷等长
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'a');
+        plainText = new String(chars);
+
+        engine = AESEngine.of(base64Key);
+        gcm = AESGCMEngine.of(base64Key);
+        ecbCipherText = engine.encrypt(plain);
+        ecbBase64 = AESUtil.encrypt(plainText, base64Key);
+        gcmCipherText = gcm.encrypt(plain);
+
+        directPlain = ByteBuffer.allocateDirect(payloadSize);
+        directPlain.put(plain).flip();
+        directCipher = ByteBuffer.allocateDirect(ecbCipherText.length);
+        directCipher.put(ecbCipherText).flip();
+        directOut = ByteBuffer.allocateDirect(AESEngine.encryptedLength(payloadSize));
+        arrayOut = new byte[AESGCMEngine.encryptedLength(payloadSize)];
+    }
+
+    /**
+     * 原实现：每次调用解析密钥并执行Cipher.getInstance与init
+     */
+    @Benchmark
+    public byte[] uncachedEncrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.decodeBase64(base64Key.getBytes()), "AES"));
+        return cipher.doFinal(plain);
+    }
+
+    @Benchmark
+    public byte[] uncachedDecrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(Base64.decodeBase64(base64Key.getBytes()), "AES"));
+        return cipher.doFinal(ecbCipherText);
+    }
+
+    @Benchmark
+    public String aesUtilEncrypt() throws CryptoException {
+        return AESUtil.encrypt(plainText, base64Key);
+    }
+
+    @Benchmark
+    public String aesUtilDecrypt() throws CryptoException {
+        return AESUtil.decrypt(ecbBase64, base64Key);
+    }
+
+    @Benchmark
+    public byte[] cachedEncrypt() throws CryptoException {
+        return engine.encrypt(plain);
+    }
+
+    @Benchmark
+    public byte[] cachedDecrypt() throws CryptoException {
+        return engine.decrypt(ecbCipherText);
+    }
+
+    @Benchmark
+    public int bufferEncrypt() throws CryptoException {
+        directPlain.rewind();
+        directOut.clear();
+        return engine.encrypt(directPlain, directOut);
+    }
+
+    @Benchmark
+    public int bufferDecrypt() throws CryptoException {
+        directCipher.rewind();
+        directOut.clear();
+        return engine.decrypt(directCipher, directOut);
+    }
+
+    @Benchmark
+    public long streamingEncrypt() throws IOException, CryptoException {
+        return engine.encrypt(new ByteArrayInputStream(plain), DiscardOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public long streamingDecrypt() throws IOException, CryptoException {
+        return engine.decrypt(new ByteArrayInputStream(ecbCipherText), DiscardOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public byte[] gcmEncrypt() throws CryptoException {
+        return gcm.encrypt(plain);
+    }
+
+    @Benchmark
+    public int gcmEncryptInto() throws CryptoException {
+        return gcm.encrypt(plain, 0, plain.length, null, arrayOut, 0);
+    }
+
+    @Benchmark
+    public byte[] gcmDecrypt() throws CryptoException {
+        return gcm.decrypt(gcmCipherText);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int[] threads = {1, Runtime.getRuntime().availableProcessors()};
+        for (int t : threads) {
+            Options options = new OptionsBuilder()
+                    .include(AESBenchmark.class.getSimpleName())
+                    .threads(t)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * 丢弃所有写入的输出流，只衡量加解密本身
+     */
+    private static final class DiscardOutputStream extends OutputStream {
+
+        static final DiscardOutputStream INSTANCE = new DiscardOutputStream();
+
+        @Override
+        public void write(int b) {
+            // 丢弃
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // 丢弃
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.loadup.capability.common.benchmark.log;
+
+/*-
+ * #%L
+ * loadup-common-benchmark
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.loadup.capability.common.util.log.LogUtils;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * {@link LogUtils}在日志级别关闭时的开销：对比可变参数与定长参数、单参数warnMessage、Supplier延迟求值
+ *
+ * <p>运行：<code>java -cp benchmarks.jar com.github.loadup.capability.common.benchmark.log.LogUtilsDisabledBenchmark</code>，
+ * GC profiler的gc.alloc.rate.norm应为0（可变参数版本依赖逃逸分析消除数组，不作保证）。
+ * 参数使用预先创建的对象，避免把调用方的装箱计入。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogUtilsDisabledBenchmark {
+
+    private static final Supplier<Object> MESSAGE = () -> "never built";
+
+    /**
+     * 所有级别均关闭
+     */
+    private final Logger logger = NOPLogger.NOP_LOGGER;
+
+    private final Throwable error   = new IllegalStateException("benchmark");
+    private final String    orderId = "order-1";
+    private final Long      amount  = 1000L;
+    private final String    status  = "FAIL";
+
+    @Benchmark
+    public void varargsWarn() {
+        LogUtils.warn(logger, "order ", orderId, " amount ", amount, " status ", status);
+    }
+
+    @Benchmark
+    public void singleMessageWarn() {
+        LogUtils.warnMessage(logger, orderId);
+    }
+
+    @Benchmark
+    public void fixedArityWarn() {
+        LogUtils.warn(logger, orderId, amount, status);
+    }
+
+    @Benchmark
+    public void fixedArityError() {
+        LogUtils.error(logger, error, orderId, amount, status);
+    }
+
+    @Benchmark
+    public void supplierWarn() {
+        LogUtils.warnLazy(logger, MESSAGE);
+    }
+
+    @Benchmark
+    public void supplierError() {
+        LogUtils.errorLazy(logger, error, MESSAGE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LogUtilsDisabledBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * 时钟回拨或预借时间超出上限，且策略为{@link ClockSkewPolicy#FAIL}时抛出
+ */
+public class ClockSkewException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 超前于系统时钟的毫秒数
+     */
+    private final long aheadMillis;
+
+    public ClockSkewException(String message, long aheadMillis) {
+        super(message);
+        this.aheadMillis = aheadMillis;
+    }
+
+    /**
+     * @return 超前于系统时钟的毫秒数
+     */
+    public long getAheadMillis() {
+        return aheadMillis;
+    }
+}
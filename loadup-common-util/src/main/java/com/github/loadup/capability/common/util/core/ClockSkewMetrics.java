@@ -0,0 +1,119 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 时钟偏移指标：计数器按事件累加，gauge记录观测到的最大值，供监控定期采集
+ */
+public class ClockSkewMetrics {
+
+    private final LongAdder  rollbacks         = new LongAdder();
+    private final LongAdder  borrows           = new LongAdder();
+    private final LongAdder  waits             = new LongAdder();
+    private final LongAdder  failures          = new LongAdder();
+    private final AtomicLong maxRollbackMillis = new AtomicLong();
+    private final AtomicLong maxAheadMillis    = new AtomicLong();
+
+    void recordRollback(long millis) {
+        rollbacks.increment();
+        updateMax(maxRollbackMillis, millis);
+    }
+
+    void recordBorrow(long aheadMillis) {
+        borrows.increment();
+        updateMax(maxAheadMillis, aheadMillis);
+    }
+
+    void recordWait() {
+        waits.increment();
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * @return 检测到的时钟回拨次数，一次回拨只计一次
+     */
+    public long getRollbackCount() {
+        return rollbacks.sum();
+    }
+
+    /**
+     * @return 时间戳超前于系统时钟时发出的ID个数
+     */
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    /**
+     * @return 因超出预借上限而等待的次数
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    /**
+     * @return 因超出预借上限而失败的次数
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return 观测到的最大回拨毫秒数
+     */
+    public long getMaxRollbackMillis() {
+        return maxRollbackMillis.get();
+    }
+
+    /**
+     * @return 观测到的最大超前毫秒数
+     */
+    public long getMaxAheadMillis() {
+        return maxAheadMillis.get();
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClockSkewMetrics[rollbacks=" + getRollbackCount() + ", borrows=" + getBorrowCount()
+                + ", waits=" + getWaitCount() + ", failures=" + getFailureCount()
+                + ", maxRollbackMillis=" + getMaxRollbackMillis() + ", maxAheadMillis=" + getMaxAheadMillis() + "]";
+    }
+}
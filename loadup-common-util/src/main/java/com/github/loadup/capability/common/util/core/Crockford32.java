@@ -0,0 +1,119 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * 128位数值的Crockford Base32编解码，固定26个字符，字典序与数值序一致
+ */
+final class Crockford32 {
+
+    /**
+     * 编码长度
+     */
+    static final int LENGTH = 26;
+
+    private static final char[] ENCODE = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ENCODE.length; i++) {
+            DECODE[ENCODE[i]] = (byte) i;
+            DECODE[Character.toLowerCase(ENCODE[i])] = (byte) i;
+        }
+        // Crockford容错：I、L视为1，O视为0
+        DECODE['I'] = DECODE['i'] = DECODE['L'] = DECODE['l'] = 1;
+        DECODE['O'] = DECODE['o'] = 0;
+    }
+
+    /**
+     * 禁用构造函数
+     */
+    private Crockford32() {
+        // 禁用构造函数
+    }
+
+    /**
+     * 单个字符的取值
+     *
+     * @return 0~31，非法字符返回-1
+     */
+    static int digit(char c) {
+        return c < 128 ? DECODE[c] : -1;
+    }
+
+    /**
+     * 编码并写入字符数组
+     *
+     * @return 写入后的下标
+     */
+    static int encode(long msb, long lsb, char[] dst, int off) {
+        for (int i = 0; i < LENGTH; i++) {
+            int shift = 125 - 5 * i;
+            long bits;
+            if (shift >= 64) {
+                bits = msb >>> (shift - 64);
+            } else if (shift <= 59) {
+                bits = lsb >>> shift;
+            } else {
+                bits = (msb << (64 - shift)) | (lsb >>> shift);
+            }
+            dst[off++] = ENCODE[(int) bits & 31];
+        }
+        return off;
+    }
+
+    /**
+     * 解码26个字符，结果写入<code>out[0]</code>(高64位)与<code>out[1]</code>(低64位)
+     *
+     * @throws IllegalArgumentException 长度不为26、含非法字符或超出128位
+     */
+    static void decode(CharSequence s, long[] out) {
+        if (s == null || s.length() != LENGTH) {
+            throw new IllegalArgumentException("base32 value must be " + LENGTH + " chars: " + s);
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = s.charAt(i);
+            int v = digit(c);
+            if (v < 0) {
+                throw new IllegalArgumentException("illegal base32 char '" + c + "' in " + s);
+            }
+            if (i == 0 && v > 7) {
+                throw new IllegalArgumentException("base32 value overflows 128 bits: " + s);
+            }
+            msb = (msb << 5) | (lsb >>> 59);
+            lsb = (lsb << 5) | v;
+        }
+        out[0] = msb;
+        out[1] = lsb;
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * ID渲染辅助方法：直接把数字、十六进制写入调用方缓冲区，不经过中间字符串
+ */
+final class IdCodec {
+
+    static final char[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    /**
+     * 禁用构造函数
+     */
+    private IdCodec() {
+        // 禁用构造函数
+    }
+
+    /**
+     * 十进制表示所需字符数，含负号
+     */
+    static int decimalSize(long v) {
+        if (v == Long.MIN_VALUE) {
+            return 20;
+        }
+        int size = 1;
+        if (v < 0) {
+            size++;
+            v = -v;
+        }
+        while (v >= 10) {
+            v /= 10;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * 以ASCII写入十进制数字
+     *
+     * @return 写入后的下标
+     */
+    static int putDecimal(long v, byte[] buf, int off) {
+        if (v == Long.MIN_VALUE) {
+            return putAscii("-9223372036854775808", buf, off);
+        }
+        int end = off + decimalSize(v);
+        if (v < 0) {
+            buf[off] = '-';
+            v = -v;
+        }
+        int i = end;
+        do {
+            buf[--i] = (byte) ('0' + (int) (v % 10));
+            v /= 10;
+        } while (v != 0);
+        return end;
+    }
+
+    /**
+     * 写入ASCII字符串
+     *
+     * @return 写入后的下标
+     */
+    static int putAscii(String s, byte[] buf, int off) {
+        for (int i = 0, l = s.length(); i < l; i++) {
+            buf[off++] = (byte) s.charAt(i);
+        }
+        return off;
+    }
+
+    /**
+     * 校验目标字符数组剩余空间
+     */
+    static void checkCapacity(char[] dst, int off, int len) {
+        if (off < 0 || len > dst.length - off) {
+            throw new IndexOutOfBoundsException("need " + len + " chars from offset " + off
+                    + ", but array length is " + dst.length);
+        }
+    }
+
+    /**
+     * 把ASCII字节逐个写入字符数组
+     *
+     * @return 写入后的下标
+     */
+    static int putAscii(byte[] src, int len, char[] dst, int off) {
+        for (int i = 0; i < len; i++) {
+            dst[off++] = (char) src[i];
+        }
+        return off;
+    }
+
+    /**
+     * 写入字节数组的小写十六进制表示
+     *
+     * @return 写入后的下标
+     */
+    static int putHex(byte[] src, int len, char[] dst, int off) {
+        for (int i = 0; i < len; i++) {
+            dst[off++] = HEX_DIGITS[(0xF0 & src[i]) >>> 4];
+            dst[off++] = HEX_DIGITS[0x0F & src[i]];
+        }
+        return off;
+    }
+
+    /**
+     * 以大端序写入long的16位小写十六进制表示
+     *
+     * @return 写入后的下标
+     */
+    static int putHex(long v, char[] dst, int off) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            dst[off++] = HEX_DIGITS[(int) (v >>> shift) & 0x0F];
+        }
+        return off;
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ID解析工具：从各种格式的ID中取出时间戳、节点与序号，用于按ID区间裁剪分区表或归档，无需回表查询创建时间<br>
+ *
+ * <p>支持{@link IdInfo.Format}列出的全部格式，逐字符扫描，不使用正则或字符串分割。
+ * 只需时间戳时使用{@link #timestampOf(CharSequence)}，不产生对象分配。
+ */
+public final class IdDecoder {
+
+    /**
+     * 禁用构造函数
+     */
+    private IdDecoder() {
+        // 禁用构造函数
+    }
+
+    /**
+     * 解析字符形式的ID，格式自动识别
+     *
+     * @param id ID
+     * @return 解析结果
+     * @throws IllegalArgumentException 无法识别的格式
+     */
+    public static IdInfo decode(CharSequence id) {
+        switch (formatOf(id)) {
+            case SNOWFLAKE:
+                return decode(parseDecimal(id, 0, id.length()));
+            case ULID:
+                Ulid ulid = Ulid.parse(id);
+                return new IdInfo(IdInfo.Format.ULID, ulid.timestamp(), null, -1);
+            case UUID_V7:
+                return new IdInfo(IdInfo.Format.UUID_V7, uuidTimestamp(id), null, -1);
+            default:
+                int first = indexOf(id, '-', 0);
+                int second = indexOf(id, '-', first + 1);
+                int last = lastSeparator(id);
+                if (second < 0 || last <= second) {
+                    throw illegal(id);
+                }
+                return new IdInfo(IdInfo.Format.LEGACY, parseDecimal(id, 0, first),
+                        id.subSequence(second + 1, last).toString(), parseDecimal(id, first + 1, second));
+        }
+    }
+
+    /**
+     * 解析{@link SnowflakeIdGenerator}生成的数字ID<br>
+     *
+     * <p>数字ID本身不携带布局信息，{@link ShardedIdGenerator}生成的ID按此方法解析时只有时间戳正确，
+     * 应使用{@link #decodeSharded(long, int, int)}。
+     *
+     * @param id ID
+     * @return 解析结果
+     */
+    public static IdInfo decode(long id) {
+        return new IdInfo(IdInfo.Format.SNOWFLAKE, SnowflakeIdGenerator.timestampOf(id),
+                Long.toString(SnowflakeIdGenerator.workerIdOf(id)), SnowflakeIdGenerator.sequenceOf(id));
+    }
+
+    /**
+     * 按默认布局解析{@link UniqueId#getShardedUniqID(int)}生成的数字ID
+     *
+     * @param id ID
+     * @return 解析结果
+     */
+    public static IdInfo decodeSharded(long id) {
+        return decodeSharded(id, ShardedIdGenerator.DEFAULT_WORKER_BITS, ShardedIdGenerator.DEFAULT_SHARD_BITS);
+    }
+
+    /**
+     * 解析{@link ShardedIdGenerator}生成的数字ID，布局须与生成时一致
+     *
+     * @param id         ID
+     * @param workerBits workerId位数
+     * @param shardBits  分片键位数
+     * @return 解析结果
+     * @throws IllegalArgumentException 布局不合法
+     */
+    public static IdInfo decodeSharded(long id, int workerBits, int shardBits) {
+        int sequenceBits = ShardedIdGenerator.sequenceBits(workerBits, shardBits);
+        long workerId = (id >>> (sequenceBits + shardBits)) & ((1L << workerBits) - 1);
+        long sequence = (id >>> shardBits) & ((1L << sequenceBits) - 1);
+        int shard = (int) (id & ((1L << shardBits) - 1));
+        return new IdInfo(IdInfo.Format.SHARDED, SnowflakeIdGenerator.timestampOf(id), Long.toString(workerId),
+                sequence, shard);
+    }
+
+    /**
+     * 解析字节形式的ID：8字节为大端序数字ID，16字节为ULID或UUIDv7二进制，其余按ASCII字符解析<br>
+     *
+     * <p>ULID与UUIDv7的二进制无法严格区分，版本位与变体位符合UUIDv7时按UUID_V7返回，两者时间戳位置相同，解析结果一致。
+     *
+     * @param bytes 字节数组
+     * @param off   起始下标
+     * @param len   长度
+     * @return 解析结果
+     * @throws IllegalArgumentException 无法识别的格式
+     */
+    public static IdInfo decode(byte[] bytes, int off, int len) {
+        if (len == 8) {
+            return decode(Ulid.getLong(bytes, off));
+        }
+        if (len == Ulid.BYTES) {
+            long msb = Ulid.getLong(bytes, off);
+            long lsb = Ulid.getLong(bytes, off + 8);
+            boolean v7 = ((msb >>> 12) & 0xF) == 7 && (lsb >>> 62) == 2;
+            return new IdInfo(v7 ? IdInfo.Format.UUID_V7 : IdInfo.Format.ULID, msb >>> 16, null, -1);
+        }
+        return decode(new AsciiSequence(bytes, off, len));
+    }
+
+    /**
+     * 只解析时间戳，不产生对象分配
+     *
+     * @param id 字符形式的ID
+     * @return 毫秒时间戳
+     * @throws IllegalArgumentException 无法识别的格式
+     */
+    public static long timestampOf(CharSequence id) {
+        switch (formatOf(id)) {
+            case SNOWFLAKE:
+                return SnowflakeIdGenerator.timestampOf(parseDecimal(id, 0, id.length()));
+            case ULID:
+                long ts = 0;
+                // 前10个字符为50位，其中低48位是时间戳
+                for (int i = 0; i < 10; i++) {
+                    ts = (ts << 5) | crockford(id, i);
+                }
+                return ts;
+            case UUID_V7:
+                return uuidTimestamp(id);
+            default:
+                int first = indexOf(id, '-', 0);
+                if (first <= 0) {
+                    throw illegal(id);
+                }
+                return parseDecimal(id, 0, first);
+        }
+    }
+
+    /**
+     * 识别字符形式ID的格式
+     *
+     * @param id ID
+     * @return 格式
+     * @throws IllegalArgumentException 无法识别的格式
+     */
+    public static IdInfo.Format formatOf(CharSequence id) {
+        int len = id == null ? 0 : id.length();
+        if (len == 0) {
+            throw illegal(id);
+        }
+        if (len == 36 && id.charAt(8) == '-' && id.charAt(13) == '-' && id.charAt(18) == '-'
+                && id.charAt(23) == '-') {
+            if (id.charAt(14) != '7') {
+                throw new IllegalArgumentException("only version 7 uuid carries a timestamp: " + id);
+            }
+            return IdInfo.Format.UUID_V7;
+        }
+        if (indexOf(id, '-', 0) > 0) {
+            return IdInfo.Format.LEGACY;
+        }
+        if (len <= 19 && isDigits(id)) {
+            return IdInfo.Format.SNOWFLAKE;
+        }
+        if (len == 26) {
+            return IdInfo.Format.ULID;
+        }
+        throw illegal(id);
+    }
+
+    /**
+     * 最后一段的分隔符；线程hashCode为负数时形如<code>节点--123</code>，负号属于最后一段
+     */
+    private static int lastSeparator(CharSequence id) {
+        int i = id.length() - 1;
+        while (i >= 0 && id.charAt(i) != '-') {
+            i--;
+        }
+        if (i > 0 && id.charAt(i - 1) == '-') {
+            i--;
+        }
+        return i;
+    }
+
+    private static long uuidTimestamp(CharSequence id) {
+        long ts = 0;
+        for (int i = 0; i < 13; i++) {
+            if (i == 8) {
+                continue;
+            }
+            int v = Character.digit(id.charAt(i), 16);
+            if (v < 0) {
+                throw illegal(id);
+            }
+            ts = (ts << 4) | v;
+        }
+        return ts;
+    }
+
+    private static int crockford(CharSequence id, int i) {
+        int v = Crockford32.digit(id.charAt(i));
+        if (v < 0) {
+            throw illegal(id);
+        }
+        return v;
+    }
+
+    /**
+     * 解析非负十进制数，超过19位或超出long范围时视为非法
+     */
+    private static long parseDecimal(CharSequence s, int from, int to) {
+        if (from >= to || to - from > 19) {
+            throw illegal(s);
+        }
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw illegal(s);
+            }
+            v = v * 10 + (c - '0');
+            if (v < 0) {
+                throw illegal(s);
+            }
+        }
+        return v;
+    }
+
+    private static boolean isDigits(CharSequence s) {
+        for (int i = 0, l = s.length(); i < l; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from) {
+        for (int i = from, l = s.length(); i < l; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static IllegalArgumentException illegal(CharSequence id) {
+        return new IllegalArgumentException("unrecognized id: " + id);
+    }
+
+    /**
+     * ASCII字节数组的字符视图，避免复制
+     */
+    private static final class AsciiSequence implements CharSequence {
+        private final byte[] bytes;
+        private final int    off;
+        private final int    len;
+
+        AsciiSequence(byte[] bytes, int off, int len) {
+            this.bytes = bytes;
+            this.off = off;
+            this.len = len;
+        }
+
+        @Override
+        public int length() {
+            return len;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[off + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiSequence(bytes, off + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, off, len, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
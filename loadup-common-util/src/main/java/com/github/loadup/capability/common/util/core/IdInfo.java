@@ -0,0 +1,118 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * ID解析结果，见{@link IdDecoder}
+ */
+public final class IdInfo {
+
+    /**
+     * ID格式
+     */
+    public enum Format {
+        /**
+         * {@link UniqueId#getUniqID()}与{@link UniqueId#getStripedUniqID()}：时间戳-随机数-节点-后缀
+         */
+        LEGACY,
+        /**
+         * {@link SnowflakeIdGenerator}生成的64位数字ID
+         */
+        SNOWFLAKE,
+        /**
+         * {@link ShardedIdGenerator}生成的64位数字ID，需通过{@link IdDecoder#decodeSharded(long, int, int)}指定布局解析
+         */
+        SHARDED,
+        /**
+         * {@link Ulid}
+         */
+        ULID,
+        /**
+         * {@link UuidV7}
+         */
+        UUID_V7
+    }
+
+    private final Format format;
+    private final long   timestamp;
+    private final String node;
+    private final long   sequence;
+    private final int    shard;
+
+    IdInfo(Format format, long timestamp, String node, long sequence) {
+        this(format, timestamp, node, sequence, -1);
+    }
+
+    IdInfo(Format format, long timestamp, String node, long sequence, int shard) {
+        this.format = format;
+        this.timestamp = timestamp;
+        this.node = node;
+        this.sequence = sequence;
+        this.shard = shard;
+    }
+
+    /**
+     * @return ID格式
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @return 毫秒时间戳
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return 节点：LEGACY为节点标识，SNOWFLAKE与SHARDED为workerId，ULID与UUID_V7不含节点，为null
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return 序号：LEGACY为第二段随机数，SNOWFLAKE与SHARDED为毫秒内序列号，ULID与UUID_V7为-1
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return 分片键：SHARDED为ID最低位的分片键，其余格式为-1
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    @Override
+    public String toString() {
+        return "IdInfo[format=" + format + ", timestamp=" + timestamp + ", node=" + node
+                + ", sequence=" + sequence + ", shard=" + shard + "]";
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * MurmurHash3 x64 128位哈希，非加密用途，用于快速生成散列ID
+ */
+public final class Murmur3 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * 禁用构造函数
+     */
+    private Murmur3() {
+        // 禁用构造函数
+    }
+
+    /**
+     * 计算128位哈希，结果写入<code>out[0]</code>(h1)与<code>out[1]</code>(h2)，不产生对象分配
+     *
+     * @param data 数据
+     * @param off  起始下标
+     * @param len  长度
+     * @param seed 种子
+     * @param out  长度至少为2的结果数组
+     */
+    public static void hash128(byte[] data, int off, int len, long seed, long[] out) {
+        long h1 = seed;
+        long h2 = seed;
+        int end = off + (len & ~15);
+
+        for (int i = off; i < end; i += 16) {
+            long k1 = getLongLE(data, i);
+            long k2 = getLongLE(data, i + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        switch (len & 15) {
+            case 15:
+                k2 ^= (long) (data[end + 14] & 0xff) << 48;
+            case 14:
+                k2 ^= (long) (data[end + 13] & 0xff) << 40;
+            case 13:
+                k2 ^= (long) (data[end + 12] & 0xff) << 32;
+            case 12:
+                k2 ^= (long) (data[end + 11] & 0xff) << 24;
+            case 11:
+                k2 ^= (long) (data[end + 10] & 0xff) << 16;
+            case 10:
+                k2 ^= (long) (data[end + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= (long) (data[end + 8] & 0xff);
+                h2 ^= mixK2(k2);
+            case 8:
+                k1 ^= (long) (data[end + 7] & 0xff) << 56;
+            case 7:
+                k1 ^= (long) (data[end + 6] & 0xff) << 48;
+            case 6:
+                k1 ^= (long) (data[end + 5] & 0xff) << 40;
+            case 5:
+                k1 ^= (long) (data[end + 4] & 0xff) << 32;
+            case 4:
+                k1 ^= (long) (data[end + 3] & 0xff) << 24;
+            case 3:
+                k1 ^= (long) (data[end + 2] & 0xff) << 16;
+            case 2:
+                k1 ^= (long) (data[end + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= (long) (data[end] & 0xff);
+                h1 ^= mixK1(k1);
+            default:
+                break;
+        }
+
+        h1 ^= len;
+        h2 ^= len;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLongLE(byte[] data, int i) {
+        return (data[i] & 0xffL)
+                | (data[i + 1] & 0xffL) << 8
+                | (data[i + 2] & 0xffL) << 16
+                | (data[i + 3] & 0xffL) << 24
+                | (data[i + 4] & 0xffL) << 32
+                | (data[i + 5] & 0xffL) << 40
+                | (data[i + 6] & 0xffL) << 48
+                | (data[i + 7] & 0xffL) << 56;
+    }
+}
@@ -0,0 +1,368 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 节点标识，在后台线程中按顺序尝试各个{@link Source}，解析完成前返回兜底值<br>
+ *
+ * <p>解析过程不阻塞调用方，也不阻塞类加载；解析结果、来源和耗时会记录日志并可通过getter获取，便于观测冷启动。
+ *
+ * <p>节点标识只接受可打印ASCII字符，ID的字符串、字符数组与字节形式因此逐字节一致；含其他字符的来源结果视为不可用。
+ *
+ * <p>默认来源由系统属性配置：
+ * <ul>
+ *     <li><code>loadup.node.sources</code> 来源顺序，逗号分隔，可选env、lease、host、mac、pid，默认<code>env,host,mac,pid</code></li>
+ *     <li><code>loadup.node.env</code> env来源读取的环境变量名，默认<code>LOADUP_NODE_ID</code></li>
+ *     <li><code>loadup.node.lease.file</code> lease来源的租约文件，未配置时跳过</li>
+ * </ul>
+ */
+public class NodeIdentity {
+
+    public static final String PROP_SOURCES    = "loadup.node.sources";
+    public static final String PROP_ENV        = "loadup.node.env";
+    public static final String PROP_LEASE_FILE = "loadup.node.lease.file";
+
+    /**
+     * 兜底值的来源名
+     */
+    public static final String FALLBACK = "fallback";
+
+    private static final Logger log = LoggerFactory.getLogger(NodeIdentity.class);
+
+    private final List<Source>   sources;
+    private final long           startNanos    = System.nanoTime();
+    private final CountDownLatch resolvedLatch = new CountDownLatch(1);
+
+    private volatile String value;
+    private volatile String sourceName   = FALLBACK;
+    private volatile long   resolveNanos = -1;
+
+    /**
+     * 创建并立即在后台线程开始解析
+     *
+     * @param fallback 解析完成前以及全部来源失败时使用的值，仅含可打印ASCII字符
+     * @param sources  按顺序尝试的来源
+     * @throws IllegalArgumentException fallback为空或含非ASCII字符
+     */
+    public NodeIdentity(String fallback, List<Source> sources) {
+        if (StringUtils.isBlank(fallback) || !StringUtils.isAsciiPrintable(fallback)) {
+            throw new IllegalArgumentException("fallback must be printable ASCII, but was " + fallback);
+        }
+        this.value = fallback;
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+
+        Thread resolver = new Thread(this::resolve, "node-identity-resolver");
+        resolver.setDaemon(true);
+        resolver.start();
+    }
+
+    /**
+     * 按系统属性创建，兜底值为当前毫秒数
+     *
+     * @return 节点标识
+     */
+    public static NodeIdentity fromSystemProperties() {
+        List<Source> sources = new ArrayList<>();
+        for (String name : StringUtils.split(System.getProperty(PROP_SOURCES, "env,host,mac,pid"), ',')) {
+            switch (name.trim()) {
+                case "env":
+                    sources.add(envSource(System.getProperty(PROP_ENV, "LOADUP_NODE_ID")));
+                    break;
+                case "lease":
+                    String file = System.getProperty(PROP_LEASE_FILE);
+                    if (StringUtils.isNotBlank(file)) {
+                        sources.add(leaseFileSource(Paths.get(file)));
+                    }
+                    break;
+                case "host":
+                    sources.add(hostAddressSource());
+                    break;
+                case "mac":
+                    sources.add(macSource());
+                    break;
+                case "pid":
+                    sources.add(pidSource());
+                    break;
+                default:
+                    log.warn("[NodeIdentity] unknown source: " + name);
+            }
+        }
+        return new NodeIdentity(String.valueOf(System.currentTimeMillis()), sources);
+    }
+
+    /**
+     * @return 当前节点标识，解析完成前为兜底值
+     */
+    public String get() {
+        return value;
+    }
+
+    /**
+     * 由节点标识推导数字编号：IPv4取后两段，纯数字直接解析，其余取哈希<br>
+     *
+     * <p>推导值超过<code>max</code>时取模并记录告警：取模后不同节点可能得到相同编号，
+     * 多节点部署应通过环境变量<code>LOADUP_NODE_ID</code>为每个节点配置[0, max]内的唯一数字。
+     *
+     * @param max 最大编号
+     * @return [0, max]之间的编号
+     */
+    public long numericId(long max) {
+        String v = value;
+        long id;
+        int lastDot = v.lastIndexOf('.');
+        int prevDot = lastDot > 0 ? v.lastIndexOf('.', lastDot - 1) : -1;
+        if (prevDot > 0 && StringUtils.isNumeric(v.substring(prevDot + 1, lastDot))
+                && StringUtils.isNumeric(v.substring(lastDot + 1))) {
+            id = Long.parseLong(v.substring(prevDot + 1, lastDot)) << 8 | Long.parseLong(v.substring(lastDot + 1));
+        } else if (StringUtils.isNumeric(v) && v.length() < 19) {
+            id = Long.parseLong(v);
+        } else {
+            id = v.hashCode() & Integer.MAX_VALUE;
+        }
+        if (id > max) {
+            log.warn("[NodeIdentity] numeric id " + id + " derived from " + v + " exceeds " + max + ", folded to "
+                    + id % (max + 1) + "; other nodes may get the same id, configure a unique id in [0, " + max + "]");
+        }
+        return id % (max + 1);
+    }
+
+    /**
+     * @return 是否已解析完成（含全部来源失败、使用兜底值的情况）
+     */
+    public boolean isResolved() {
+        return resolveNanos >= 0;
+    }
+
+    /**
+     * 等待解析完成
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否在超时前完成
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean awaitResolved(long timeout, TimeUnit unit) throws InterruptedException {
+        return resolvedLatch.await(timeout, unit);
+    }
+
+    /**
+     * @return 生效的来源名，未解析或全部失败时为{@link #FALLBACK}
+     */
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    /**
+     * @return 解析耗时（毫秒），未完成时为-1
+     */
+    public long getResolveMillis() {
+        long nanos = resolveNanos;
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private void resolve() {
+        try {
+            for (Source source : sources) {
+                String resolved = null;
+                try {
+                    resolved = source.resolve();
+                } catch (Exception e) {
+                    log.warn("[NodeIdentity] source " + source.name() + " failed", e);
+                }
+                if (StringUtils.isBlank(resolved)) {
+                    continue;
+                }
+                resolved = resolved.trim();
+                if (!StringUtils.isAsciiPrintable(resolved)) {
+                    log.warn("[NodeIdentity] source " + source.name() + " returned non-ASCII value, skipped: "
+                            + resolved);
+                    continue;
+                }
+                value = resolved;
+                sourceName = source.name();
+                break;
+            }
+        } finally {
+            resolveNanos = System.nanoTime() - startNanos;
+            resolvedLatch.countDown();
+            log.info("[NodeIdentity] resolved by " + sourceName + " in " + getResolveMillis()
+                    + "ms: " + value);
+        }
+    }
+
+    /**
+     * 节点标识来源
+     */
+    public interface Source {
+
+        /**
+         * @return 来源名，用于日志与观测
+         */
+        String name();
+
+        /**
+         * 解析节点标识，可以阻塞
+         *
+         * @return 节点标识，不可用时返回null
+         * @throws Exception 解析失败
+         */
+        String resolve() throws Exception;
+    }
+
+    /**
+     * 读取环境变量
+     *
+     * @param variable 环境变量名
+     * @return 来源
+     */
+    public static Source envSource(final String variable) {
+        return new Source() {
+            @Override
+            public String name() {
+                return "env";
+            }
+
+            @Override
+            public String resolve() {
+                return System.getenv(variable);
+            }
+        };
+    }
+
+    /**
+     * 读取本地租约文件，文件不存在时生成一个随机标识并写入，重启后保持不变
+     *
+     * @param file 租约文件
+     * @return 来源
+     */
+    public static Source leaseFileSource(final Path file) {
+        return new Source() {
+            @Override
+            public String name() {
+                return "lease";
+            }
+
+            @Override
+            public String resolve() throws Exception {
+                if (Files.exists(file)) {
+                    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+                }
+                String id = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+                Files.write(file, id.getBytes(StandardCharsets.UTF_8));
+                return id;
+            }
+        };
+    }
+
+    /**
+     * 本机IP地址，即{@link UniqueId}原有的取值方式；在容器中可能触发耗时的DNS解析，回环地址视为不可用
+     *
+     * @return 来源
+     */
+    public static Source hostAddressSource() {
+        return new Source() {
+            @Override
+            public String name() {
+                return "host";
+            }
+
+            @Override
+            public String resolve() throws Exception {
+                String hostAddr = InetAddress.getLocalHost().getHostAddress();
+                return "127.0.0.1".equals(hostAddr) ? null : hostAddr;
+            }
+        };
+    }
+
+    /**
+     * 第一块非回环网卡的MAC地址，十六进制表示
+     *
+     * @return 来源
+     */
+    public static Source macSource() {
+        return new Source() {
+            @Override
+            public String name() {
+                return "mac";
+            }
+
+            @Override
+            public String resolve() throws Exception {
+                Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+                while (interfaces != null && interfaces.hasMoreElements()) {
+                    NetworkInterface ni = interfaces.nextElement();
+                    byte[] mac = ni.isLoopback() ? null : ni.getHardwareAddress();
+                    if (mac != null && mac.length > 0) {
+                        char[] hex = new char[mac.length << 1];
+                        IdCodec.putHex(mac, mac.length, hex, 0);
+                        return new String(hex);
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * 进程号，同一主机上区分多个进程
+     *
+     * @return 来源
+     */
+    public static Source pidSource() {
+        return new Source() {
+            @Override
+            public String name() {
+                return "pid";
+            }
+
+            @Override
+            public String resolve() {
+                String name = ManagementFactory.getRuntimeMXBean().getName();
+                int at = name.indexOf('@');
+                return at > 0 ? name.substring(0, at) : null;
+            }
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 号段ID分配器，适用于需要连续数字ID、批量预留ID的场景，与{@link UniqueId}互补<br>
+ *
+ * <p>每次从本地文件租用<code>step</code>个序号，并先把新的高水位落盘再发放，重启后不会重复发号。
+ * 当前号段消耗超过10%时，后台线程提前租用下一号段；调用方取号只是一次原子自增。
+ * 号段切换或重启会跳过未用完的序号，ID单调但不保证连续。
+ */
+public class SegmentIdAllocator implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentIdAllocator.class);
+
+    private final Path            file;
+    private final int             step;
+    private final ExecutorService prefetcher;
+    private final Object          leaseLock = new Object();
+
+    private volatile Segment         current;
+    private volatile boolean         closed;
+    private          Future<Segment> next;
+
+    /**
+     * @param file 高水位文件，不存在时从1开始发号
+     * @param step 每次租用的序号个数
+     * @throws UncheckedIOException 读写高水位文件失败
+     */
+    public SegmentIdAllocator(Path file, int step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be positive, but was " + step);
+        }
+        this.file = file;
+        this.step = step;
+        this.prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "segment-id-prefetch-" + file.getFileName());
+            t.setDaemon(true);
+            return t;
+        });
+        this.current = lease(step);
+    }
+
+    /**
+     * 获取下一个ID
+     *
+     * @return ID
+     */
+    public long nextId() {
+        return reserve(1);
+    }
+
+    /**
+     * 预留<code>n</code>个连续ID
+     *
+     * @param n 个数
+     * @return 第一个ID，预留区间为<code>[返回值, 返回值 + n)</code>
+     * @throws IllegalStateException 分配器已关闭
+     */
+    public long reserve(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive, but was " + n);
+        }
+        if (closed) {
+            throw new IllegalStateException("SegmentIdAllocator for " + file + " is closed");
+        }
+        if (n > step) {
+            return lease(n).start;
+        }
+        for (; ; ) {
+            Segment seg = current;
+            long first = seg.cursor.getAndAdd(n);
+            if (first + n <= seg.end) {
+                if (first <= seg.prefetchAt && seg.prefetchAt < first + n) {
+                    prefetch();
+                }
+                return first;
+            }
+            switchSegment(seg);
+        }
+    }
+
+    /**
+     * 停止后台预取线程并取消未完成的预取，已租用未发放的序号作废；关闭后再取号抛出{@link IllegalStateException}
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (next != null) {
+                next.cancel(true);
+                next = null;
+            }
+        }
+        prefetcher.shutdownNow();
+    }
+
+    private synchronized void prefetch() {
+        if (next == null && !closed) {
+            next = prefetcher.submit(() -> lease(step));
+        }
+    }
+
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        Segment seg = null;
+        if (next != null) {
+            try {
+                seg = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.warn("[SegmentId] prefetch segment failed, lease synchronously", e.getCause());
+            } catch (CancellationException e) {
+                log.debug("[SegmentId] prefetch segment cancelled, lease synchronously");
+            }
+            next = null;
+        }
+        current = (seg != null) ? seg : lease(step);
+    }
+
+    /**
+     * 租用<code>size</code>个序号：先写临时文件并刷盘，再原子替换高水位文件
+     */
+    private Segment lease(int size) {
+        synchronized (leaseLock) {
+            try {
+                long start = 1;
+                if (Files.exists(file)) {
+                    String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+                    start = Long.parseLong(content);
+                }
+                long end = start + size;
+
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(tmp, Long.toString(end).getBytes(StandardCharsets.US_ASCII));
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                if (log.isDebugEnabled()) {
+                    log.debug("[SegmentId] leased [" + start + ", " + end + ") from " + file);
+                }
+                return new Segment(start, end);
+            } catch (IOException e) {
+                throw new UncheckedIOException("lease id segment from " + file + " failed", e);
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final long       start;
+        private final long       end;
+        private final long       prefetchAt;
+        private final AtomicLong cursor;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.prefetchAt = start + Math.max(1, (end - start) / 10);
+            this.cursor = new AtomicLong(start);
+        }
+    }
+}
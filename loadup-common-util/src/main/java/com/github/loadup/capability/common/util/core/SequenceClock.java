@@ -0,0 +1,138 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 时间戳+序列号的无锁推进逻辑，供{@link SnowflakeIdGenerator}与{@link ShardedIdGenerator}共用<br>
+ *
+ * <p>每个序列状态为<code>(时间戳 - EPOCH) &lt;&lt; sequenceBits | 序列号</code>，保存在{@link AtomicLongArray}的一个槽位中，
+ * 通过CAS推进。同一毫秒内序列号耗尽时进位到下一毫秒；系统时钟回拨时沿用已发出的最大时间戳，两者都表现为预借。
+ * 预借超过<code>maxBorrowMillis</code>时按{@link ClockSkewPolicy}处理。
+ */
+final class SequenceClock {
+
+    private final int              sequenceBits;
+    private final long             maxBorrowMillis;
+    private final ClockSkewPolicy  policy;
+    private final ClockSkewMetrics metrics = new ClockSkewMetrics();
+
+    /**
+     * 观测到的最大系统时钟
+     */
+    private final AtomicLong maxWallClock = new AtomicLong();
+
+    /**
+     * 最近一次回拨发生时的{@link #maxWallClock}，用于同一次回拨只计数一次
+     */
+    private final AtomicLong rollbackAt = new AtomicLong();
+
+    SequenceClock(int sequenceBits, long maxBorrowMillis, ClockSkewPolicy policy) {
+        if (maxBorrowMillis < 0) {
+            throw new IllegalArgumentException("maxBorrowMillis must not be negative, but was " + maxBorrowMillis);
+        }
+        this.sequenceBits = sequenceBits;
+        this.maxBorrowMillis = maxBorrowMillis;
+        this.policy = policy;
+    }
+
+    /**
+     * 推进指定槽位的序列状态
+     *
+     * @return 新状态：<code>(时间戳 - EPOCH) &lt;&lt; sequenceBits | 序列号</code>
+     * @throws ClockSkewException 超出预借上限且策略为{@link ClockSkewPolicy#FAIL}
+     */
+    long next(AtomicLongArray states, int slot) {
+        boolean waited = false;
+        for (; ; ) {
+            long now = observeWallClock() - SnowflakeIdGenerator.EPOCH;
+            long current = states.get(slot);
+            long next = (now > (current >>> sequenceBits)) ? (now << sequenceBits) : (current + 1);
+            long ahead = (next >>> sequenceBits) - now;
+            if (ahead > maxBorrowMillis) {
+                waited = onBorrowExceeded(ahead, waited);
+                continue;
+            }
+            if (states.compareAndSet(slot, current, next)) {
+                if (ahead > 0) {
+                    metrics.recordBorrow(ahead);
+                }
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @return 指定状态的时间戳超前于系统时钟的毫秒数
+     */
+    long aheadMillis(long state) {
+        return Math.max(0, (state >>> sequenceBits) + SnowflakeIdGenerator.EPOCH - System.currentTimeMillis());
+    }
+
+    ClockSkewMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 读取系统时钟并检测回拨；先读已观测的最大值再读时钟，读到更小的值只可能是时钟被回拨
+     */
+    private long observeWallClock() {
+        long max = maxWallClock.get();
+        long now = System.currentTimeMillis();
+        if (now > max) {
+            maxWallClock.compareAndSet(max, now);
+        } else if (now < max) {
+            long mark = rollbackAt.get();
+            if (mark != max && rollbackAt.compareAndSet(mark, max)) {
+                metrics.recordRollback(max - now);
+            }
+        }
+        return now;
+    }
+
+    /**
+     * 超出预借上限：FAIL策略抛出异常，WAIT策略短暂休眠后由调用方重试，每次调用只计一次等待
+     *
+     * @return 是否已等待
+     */
+    private boolean onBorrowExceeded(long ahead, boolean waited) {
+        if (policy == ClockSkewPolicy.FAIL) {
+            metrics.recordFailure();
+            throw new ClockSkewException("id timestamp is " + ahead + "ms ahead of system clock, exceeds "
+                    + maxBorrowMillis + "ms", ahead);
+        }
+        if (!waited) {
+            metrics.recordWait();
+        }
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.min(ahead - maxBorrowMillis, 10)));
+        return true;
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 携带分片路由位的64位数字ID生成器<br>
+ *
+ * <p>ID布局：<code>0 | 41位毫秒时间戳 | workerBits位workerId | 序列号 | shardBits位分片键</code>，
+ * 时间戳位置与{@link SnowflakeIdGenerator}相同，{@link SnowflakeIdGenerator#timestampOf(long)}同样适用；
+ * workerId、序列号与分片键的位置不同，完整解析使用{@link IdDecoder#decodeSharded(long, int, int)}。
+ *
+ * <p>分片键位于最低位，{@link #shardOf(long)}只是一次位与运算，且<code>id % 分片数</code>与分片键相等，
+ * 按取模路由的现有DAO无需改动。每个分片拥有独立的序列空间，互不竞争。
+ */
+public class ShardedIdGenerator {
+
+    /**
+     * 默认分片键位数
+     */
+    public static final int DEFAULT_SHARD_BITS = 8;
+
+    /**
+     * 默认workerId位数
+     */
+    public static final int DEFAULT_WORKER_BITS = 6;
+
+    /**
+     * 时间戳以下可分配的位数
+     */
+    private static final int LOW_BITS = SnowflakeIdGenerator.WORKER_BITS + SnowflakeIdGenerator.SEQUENCE_BITS;
+
+    /**
+     * 序列号至少保留的位数
+     */
+    private static final int MIN_SEQUENCE_BITS = 4;
+
+    private static final long DEFAULT_SHARD_MASK = (1L << DEFAULT_SHARD_BITS) - 1;
+
+    /**
+     * 每个分片占用的long个数，使相邻分片落在不同缓存行上
+     */
+    private static final int PADDING = 8;
+
+    private final int             shardBits;
+    private final int             sequenceBits;
+    private final long            shardMask;
+    private final long            sequenceMask;
+    private final long            workerPart;
+    private final SequenceClock   clock;
+    private final AtomicLongArray states;
+
+    /**
+     * 6位workerId、8位分片键（256个分片）、8位序列号，预借不设上限
+     *
+     * @param workerId 节点编号，取值[0, 63]
+     */
+    public ShardedIdGenerator(long workerId) {
+        this(workerId, DEFAULT_WORKER_BITS, DEFAULT_SHARD_BITS, Long.MAX_VALUE, ClockSkewPolicy.WAIT);
+    }
+
+    /**
+     * @param workerId        节点编号
+     * @param workerBits      workerId位数
+     * @param shardBits       分片键位数
+     * @param maxBorrowMillis 时间戳最多超前系统时钟的毫秒数
+     * @param policy          超出上限时的处理策略
+     */
+    public ShardedIdGenerator(long workerId, int workerBits, int shardBits, long maxBorrowMillis,
+                              ClockSkewPolicy policy) {
+        int sequenceBits = sequenceBits(workerBits, shardBits);
+        if (workerId < 0 || workerId >= (1L << workerBits)) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + ((1L << workerBits) - 1)
+                    + ", but was " + workerId);
+        }
+        this.shardBits = shardBits;
+        this.sequenceBits = sequenceBits;
+        this.shardMask = (1L << shardBits) - 1;
+        this.sequenceMask = (1L << sequenceBits) - 1;
+        this.workerPart = workerId << (sequenceBits + shardBits);
+        this.clock = new SequenceClock(sequenceBits, maxBorrowMillis, policy);
+        this.states = new AtomicLongArray((1 << shardBits) * PADDING);
+    }
+
+    /**
+     * 生成携带分片键的ID
+     *
+     * @param shard 分片键，取值[0, {@link #getShardCount()})
+     * @return 64位正整数ID
+     * @throws ClockSkewException 超出预借上限且策略为{@link ClockSkewPolicy#FAIL}
+     */
+    public long nextId(int shard) {
+        if (shard < 0 || shard > shardMask) {
+            throw new IllegalArgumentException("shard must be between 0 and " + shardMask + ", but was " + shard);
+        }
+        long next = clock.next(states, shard * PADDING);
+        return ((next >>> sequenceBits) << LOW_BITS) | workerPart
+                | ((next & sequenceMask) << shardBits) | shard;
+    }
+
+    /**
+     * 从ID中取出分片键
+     *
+     * @param id ID
+     * @return 分片键
+     */
+    public int shardOf(long id) {
+        return (int) (id & shardMask);
+    }
+
+    /**
+     * 默认布局（8位分片键）下从ID中取出分片键
+     *
+     * @param id ID
+     * @return 分片键
+     */
+    public static int defaultShardOf(long id) {
+        return (int) (id & DEFAULT_SHARD_MASK);
+    }
+
+    /**
+     * 校验布局并计算序列号位数
+     *
+     * @throws IllegalArgumentException 序列号位数不足{@value #MIN_SEQUENCE_BITS}
+     */
+    static int sequenceBits(int workerBits, int shardBits) {
+        if (workerBits < 0 || shardBits <= 0 || LOW_BITS - workerBits - shardBits < MIN_SEQUENCE_BITS) {
+            throw new IllegalArgumentException("workerBits + shardBits must leave at least " + MIN_SEQUENCE_BITS
+                    + " of " + LOW_BITS + " bits for sequence, but was " + workerBits + " + " + shardBits);
+        }
+        return LOW_BITS - workerBits - shardBits;
+    }
+
+    /**
+     * @return 分片数
+     */
+    public int getShardCount() {
+        return (int) shardMask + 1;
+    }
+
+    /**
+     * @return 时钟偏移指标
+     */
+    public ClockSkewMetrics getMetrics() {
+        return clock.getMetrics();
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 64位数字ID生成器（Snowflake布局）<br>
+ *
+ * <p>ID布局：<code>0 | 41位毫秒时间戳 | 10位workerId | 12位序列号</code>，时间戳相对{@link #EPOCH}。
+ *
+ * <p>时间戳与序列号打包在同一个long中，通过CAS推进，不持有任何监视器，生成过程不产生对象分配。
+ * 同一毫秒内序列号耗尽时，进位到下一毫秒（预借未来时间），保证ID严格递增。
+ *
+ * <p>系统时钟回拨时继续沿用已发出的最大时间戳，同样表现为预借。预借超过<code>maxBorrowMillis</code>时，
+ * 按{@link ClockSkewPolicy}等待时钟追上或抛出{@link ClockSkewException}；回拨、预借、等待、失败均记录到{@link ClockSkewMetrics}。
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * 起始纪元：2022-01-01T00:00:00Z
+     */
+    public static final long EPOCH = 1640995200000L;
+
+    /**
+     * 时间戳位数
+     */
+    public static final int TIMESTAMP_BITS = 41;
+
+    /**
+     * workerId位数
+     */
+    public static final int WORKER_BITS = 10;
+
+    /**
+     * 序列号位数
+     */
+    public static final int SEQUENCE_BITS = 12;
+
+    /**
+     * 最大workerId
+     */
+    public static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+
+    private static final long SEQUENCE_MASK   = (1L << SEQUENCE_BITS) - 1;
+    private static final int  WORKER_SHIFT    = SEQUENCE_BITS;
+    private static final int  TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_BITS;
+
+    /**
+     * 预先移位后的workerId
+     */
+    private final long workerBits;
+
+    private final SequenceClock clock;
+
+    /**
+     * 状态：<code>(时间戳 - EPOCH) &lt;&lt; SEQUENCE_BITS | 序列号</code>
+     */
+    private final AtomicLongArray state = new AtomicLongArray(1);
+
+    /**
+     * 预借不设上限
+     *
+     * @param workerId 节点编号，取值[0, {@link #MAX_WORKER_ID}]
+     */
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, Long.MAX_VALUE, ClockSkewPolicy.WAIT);
+    }
+
+    /**
+     * @param workerId        节点编号，取值[0, {@link #MAX_WORKER_ID}]
+     * @param maxBorrowMillis 时间戳最多超前系统时钟的毫秒数
+     * @param policy          超出上限时的处理策略
+     */
+    public SnowflakeIdGenerator(long workerId, long maxBorrowMillis, ClockSkewPolicy policy) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + MAX_WORKER_ID
+                    + ", but was " + workerId);
+        }
+        this.workerBits = workerId << WORKER_SHIFT;
+        this.clock = new SequenceClock(SEQUENCE_BITS, maxBorrowMillis, policy);
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return 64位正整数ID
+     * @throws ClockSkewException 超出预借上限且策略为{@link ClockSkewPolicy#FAIL}
+     */
+    public long nextId() {
+        long next = clock.next(state, 0);
+        return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT) | workerBits | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * @return 最近发出的时间戳超前于系统时钟的毫秒数，gauge
+     */
+    public long getAheadMillis() {
+        return clock.aheadMillis(state.get(0));
+    }
+
+    /**
+     * @return 时钟偏移指标
+     */
+    public ClockSkewMetrics getMetrics() {
+        return clock.getMetrics();
+    }
+
+    /**
+     * 生成下一个ID的十进制字符串形式，仅在需要字符串时调用
+     *
+     * @return 十进制ID字符串
+     */
+    public String nextIdString() {
+        return Long.toString(nextId());
+    }
+
+    /**
+     * @return 节点编号
+     */
+    public long getWorkerId() {
+        return workerBits >>> WORKER_SHIFT;
+    }
+
+    /**
+     * 从ID中解析毫秒时间戳
+     *
+     * @param id ID
+     * @return 毫秒时间戳
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    /**
+     * 指定毫秒内可能生成的最小ID，用于按时间裁剪ID区间
+     *
+     * @param timestamp 毫秒时间戳
+     * @return 最小ID
+     */
+    public static long minIdOf(long timestamp) {
+        return (timestamp - EPOCH) << TIMESTAMP_SHIFT;
+    }
+
+    /**
+     * 指定毫秒内可能生成的最大ID，用于按时间裁剪ID区间
+     *
+     * @param timestamp 毫秒时间戳
+     * @return 最大ID
+     */
+    public static long maxIdOf(long timestamp) {
+        return minIdOf(timestamp + 1) - 1;
+    }
+
+    /**
+     * 从ID中解析workerId
+     *
+     * @param id ID
+     * @return workerId
+     */
+    public static long workerIdOf(long id) {
+        return (id >>> WORKER_SHIFT) & MAX_WORKER_ID;
+    }
+
+    /**
+     * 从ID中解析序列号
+     *
+     * @param id ID
+     * @return 序列号
+     */
+    public static long sequenceOf(long id) {
+        return id & SEQUENCE_MASK;
+    }
+}
@@ -0,0 +1,238 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ULID：48位毫秒时间戳 + 80位随机数，共128位<br>
+ *
+ * <p>字符串形式为26位Crockford Base32，二进制形式为16字节大端序，两种形式的排序都与生成顺序一致，
+ * 作为主键时B+树插入集中在索引尾部；16字节的二进制列不到{@link UniqueId#getUniqID()}字符串长度的一半。
+ *
+ * <p>{@link #next()}在同一毫秒内对随机部分递增，保证单调；随机数取自{@link ThreadLocalRandom}，不可用于安全令牌。
+ */
+public final class Ulid implements Comparable<Ulid>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 二进制长度
+     */
+    public static final int BYTES = 16;
+
+    private static final long RANDOM_MSB_MASK = 0xFFFFL;
+
+    private static final AtomicReference<Ulid> LAST = new AtomicReference<>(new Ulid(0, 0));
+
+    private final long msb;
+    private final long lsb;
+
+    private Ulid(long msb, long lsb) {
+        this.msb = msb;
+        this.lsb = lsb;
+    }
+
+    /**
+     * 生成单调递增的ULID：毫秒变化时重新取随机数，同一毫秒内随机部分加一，溢出时借用下一毫秒
+     *
+     * @return ULID
+     */
+    public static Ulid next() {
+        for (; ; ) {
+            Ulid last = LAST.get();
+            long now = System.currentTimeMillis();
+            Ulid next;
+            if (now > last.timestamp()) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                next = new Ulid(now << 16 | (random.nextInt() & RANDOM_MSB_MASK), random.nextLong());
+            } else {
+                next = (last.lsb == -1L) ? new Ulid(last.msb + 1, 0) : new Ulid(last.msb, last.lsb + 1);
+            }
+            if (LAST.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 由16字节大端序二进制构造
+     *
+     * @param bytes 二进制
+     * @return ULID
+     */
+    public static Ulid fromBytes(byte[] bytes) {
+        return fromBytes(bytes, 0);
+    }
+
+    /**
+     * 由16字节大端序二进制构造
+     *
+     * @param bytes 二进制
+     * @param off   起始下标
+     * @return ULID
+     */
+    public static Ulid fromBytes(byte[] bytes, int off) {
+        if (bytes == null || off < 0 || bytes.length - off < BYTES) {
+            throw new IllegalArgumentException("ulid requires " + BYTES + " bytes");
+        }
+        return new Ulid(getLong(bytes, off), getLong(bytes, off + 8));
+    }
+
+    /**
+     * 解析26位Crockford Base32字符串，大小写不敏感
+     *
+     * @param s 字符串
+     * @return ULID
+     * @throws IllegalArgumentException 格式不合法
+     */
+    public static Ulid parse(CharSequence s) {
+        long[] value = new long[2];
+        Crockford32.decode(s, value);
+        return new Ulid(value[0], value[1]);
+    }
+
+    /**
+     * 解析字符串并直接写入二进制缓冲区
+     *
+     * @param s   字符串
+     * @param dst 目标数组
+     * @param off 起始下标
+     * @throws IllegalArgumentException 格式不合法
+     */
+    public static void parseTo(CharSequence s, byte[] dst, int off) {
+        long[] value = new long[2];
+        Crockford32.decode(s, value);
+        putLong(value[0], dst, off);
+        putLong(value[1], dst, off + 8);
+    }
+
+    /**
+     * @return 毫秒时间戳
+     */
+    public long timestamp() {
+        return msb >>> 16;
+    }
+
+    /**
+     * @return 高64位
+     */
+    public long getMostSignificantBits() {
+        return msb;
+    }
+
+    /**
+     * @return 低64位
+     */
+    public long getLeastSignificantBits() {
+        return lsb;
+    }
+
+    /**
+     * @return 16字节大端序二进制
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[BYTES];
+        writeTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * 把16字节大端序二进制写入调用方数组
+     *
+     * @param dst 目标数组
+     * @param off 起始下标
+     */
+    public void writeTo(byte[] dst, int off) {
+        putLong(msb, dst, off);
+        putLong(lsb, dst, off + 8);
+    }
+
+    /**
+     * 把26位Base32字符写入调用方数组
+     *
+     * @param dst 目标数组
+     * @param off 起始下标
+     * @return 写入的字符数
+     */
+    public int writeTo(char[] dst, int off) {
+        IdCodec.checkCapacity(dst, off, Crockford32.LENGTH);
+        Crockford32.encode(msb, lsb, dst, off);
+        return Crockford32.LENGTH;
+    }
+
+    /**
+     * @return 26位Crockford Base32字符串
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[Crockford32.LENGTH];
+        Crockford32.encode(msb, lsb, chars, 0);
+        return new String(chars);
+    }
+
+    @Override
+    public int compareTo(Ulid o) {
+        int c = Long.compareUnsigned(msb, o.msb);
+        return c != 0 ? c : Long.compareUnsigned(lsb, o.lsb);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Ulid)) {
+            return false;
+        }
+        Ulid other = (Ulid) o;
+        return msb == other.msb && lsb == other.lsb;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = msb ^ lsb;
+        return (int) (h >> 32) ^ (int) h;
+    }
+
+    static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    static void putLong(long v, byte[] b, int off) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+}
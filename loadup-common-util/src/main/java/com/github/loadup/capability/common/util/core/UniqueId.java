@@ -26,13 +26,14 @@ package com.github.loadup.capability.common.util.core;
  * #L%
  */
 
-import java.io.IOException;
-import java.net.InetAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Random;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,93 +41,406 @@ import org.slf4j.LoggerFactory;
  *
  */
 public class UniqueId {
-    private static final Logger        log    = LoggerFactory.getLogger(UniqueId.class);
-    private static       char[]        digits = {
-            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd',
-            'e', 'f'
-    };
-    private static       UniqueId      me     = new UniqueId();
-    private              String        hostAddr;
-    private              Random        random = new SecureRandom();
-    private              MessageDigest mHasher;
-    private              UniqTimer     timer  = new UniqTimer();
+    /**
+     * 系统属性：数字ID的workerId，取值[0, 1023]<br>
+     * 多节点部署时必须为每个节点配置唯一值（或把<code>LOADUP_NODE_ID</code>设为该范围内的唯一数字），
+     * 未配置时由节点标识推导，超出范围的推导值取模后可能与其他节点相同，导致重复ID
+     */
+    public static final String PROP_WORKER_ID = "loadup.id.workerId";
 
+    /**
+     * 系统属性：分片数字ID的workerId，取值[0, 63]<br>
+     * 每个分片的序列号每毫秒从0开始，workerId相同的节点会对同一分片发出相同ID，多节点部署时必须为每个节点配置唯一值；
+     * 未配置时由节点标识推导，IPv4只保留末段低6位，同一网段内极易冲突
+     */
+    public static final String PROP_SHARDED_WORKER_ID = "loadup.id.shardedWorkerId";
+
+    /**
+     * 系统属性：数字ID时间戳最多超前系统时钟的毫秒数，默认不设上限
+     */
+    public static final String PROP_MAX_BORROW_MILLIS = "loadup.id.maxBorrowMillis";
+
+    /**
+     * 系统属性：超出预借上限时的策略，WAIT或FAIL，默认WAIT
+     */
+    public static final String PROP_CLOCK_SKEW_POLICY = "loadup.id.clockSkewPolicy";
+
+    /**
+     * 散列模式：与{@link #getUniqIDHash()}相同的32位十六进制MD5
+     */
+    public static final int HASH_MD5 = 0;
+
+    /**
+     * 散列模式：32位十六进制MurmurHash3 128位，非加密，速度更快
+     */
+    public static final int HASH_MURMUR3 = 1;
+
+    private static final Logger                   log         = LoggerFactory.getLogger(UniqueId.class);
+    private static       UniqueId                 me          = new UniqueId();
+    private final        NodeIdentity             identity    = NodeIdentity.fromSystemProperties();
+    private              Random                   random      = new SecureRandom();
+    private              UniqTimer                timer       = new UniqTimer();
+    private volatile     SnowflakeIdGenerator     snowflake;
+    private volatile     ShardedIdGenerator       sharded;
+    private              StripedIdGenerator       striped;
+    private final        ThreadLocal<IdContext>   idContext   = ThreadLocal.withInitial(IdContext::new);
+
+    /**
+     * 节点标识在后台线程中解析，构造过程不做DNS查询，解析完成前使用兜底值，见{@link NodeIdentity}
+     */
     private UniqueId() {
-        try {
-            InetAddress addr = InetAddress.getLocalHost();
+        striped = new StripedIdGenerator(identity::get, Runtime.getRuntime().availableProcessors() * 2);
+    }
 
-            hostAddr = addr.getHostAddress();
-        } catch (IOException e) {
-            log.error("[UniqID] Get HostAddr Error", e);
-            hostAddr = String.valueOf(System.currentTimeMillis());
-        }
+    public static UniqueId getInstance() {
+        return me;
+    }
 
-        if (StringUtils.isBlank(hostAddr) || "127.0.0.1".equals(hostAddr)) {
-            hostAddr = String.valueOf(System.currentTimeMillis());
-        }
+    public String getUniqID() {
+        IdContext ctx = idContext.get();
+        int len = ctx.renderUniqID();
+        String id = new String(ctx.input, 0, len, StandardCharsets.US_ASCII);
 
         if (log.isDebugEnabled()) {
-            log.debug("[UniqID]hostAddr is:" + hostAddr);
+            log.debug("[UniqID.getUniqID]" + id);
         }
 
-        try {
-            mHasher = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException nex) {
-            mHasher = null;
-            log.error("[UniqID]new MD% Hasher error", nex);
+        return id;
+    }
+
+    /**
+     * 生成ID并追加到<code>sb</code>，格式与{@link #getUniqID()}相同，不创建中间字符串
+     *
+     * @param sb 目标
+     * @return sb
+     */
+    public StringBuilder appendUniqIDTo(StringBuilder sb) {
+        IdContext ctx = idContext.get();
+        int len = ctx.renderUniqID();
+        for (int i = 0; i < len; i++) {
+            sb.append((char) ctx.input[i]);
         }
+        return sb;
     }
 
-    public static UniqueId getInstance() {
-        return me;
+    /**
+     * 生成ID并写入字符数组，格式与{@link #getUniqID()}相同
+     *
+     * @param dst 目标数组
+     * @param off 起始下标
+     * @return 写入的字符数
+     * @throws IndexOutOfBoundsException 剩余空间不足
+     */
+    public int writeUniqIDTo(char[] dst, int off) {
+        IdContext ctx = idContext.get();
+        int len = ctx.renderUniqID();
+        IdCodec.checkCapacity(dst, off, len);
+        IdCodec.putAscii(ctx.input, len, dst, off);
+        return len;
     }
 
-    public String getUniqID() {
-        StringBuffer sb = new StringBuffer();
-        long t = timer.getCurrentTime();
+    /**
+     * 生成ID并以ASCII字节写入<code>dst</code>，格式与{@link #getUniqID()}相同，position随之前移
+     *
+     * @param dst 目标缓冲区
+     * @return 写入的字节数
+     * @throws java.nio.BufferOverflowException 剩余空间不足
+     */
+    public int writeUniqIDTo(ByteBuffer dst) {
+        IdContext ctx = idContext.get();
+        int len = ctx.renderUniqID();
+        dst.put(ctx.input, 0, len);
+        return len;
+    }
 
-        sb.append(t);
+    /**
+     * 分段模式生成ID，格式与{@link #getUniqID()}相同，末段为分段号，见{@link StripedIdGenerator}
+     *
+     * @return ID字符串
+     */
+    public String getStripedUniqID() {
+        return striped.nextId();
+    }
 
-        sb.append("-");
+    /**
+     * 生成64位数字ID，无锁、无对象分配，布局见{@link SnowflakeIdGenerator}
+     *
+     * @return 数字ID
+     */
+    public long getUniqLongID() {
+        return snowflake().nextId();
+    }
 
-        sb.append(random.nextInt(8999) + 1000);
+    /**
+     * 生成64位数字ID的十进制字符串形式
+     *
+     * @return 十进制ID字符串
+     */
+    public String getUniqLongIDString() {
+        return snowflake().nextIdString();
+    }
 
-        sb.append("-");
-        sb.append(hostAddr);
+    public String getUniqIDHash() {
+        return getUniqIDHash(HASH_MD5);
+    }
 
-        sb.append("-");
-        sb.append(Thread.currentThread().hashCode());
+    /**
+     * 生成散列ID，32位小写十六进制<br>
+     *
+     * <p>基于分段模式生成原始ID，每个线程持有独立的{@link MessageDigest}与缓冲区，不存在锁竞争。
+     * MD5不可用时返回原始ID，与{@link #getUniqIDHash()}行为一致。
+     *
+     * @param mode {@link #HASH_MD5}或{@link #HASH_MURMUR3}
+     * @return 散列ID
+     */
+    public String getUniqIDHash(int mode) {
+        IdContext ctx = idContext.get();
+        int len = ctx.hash(mode);
+        if (len < 0) {
+            return new String(ctx.input, 0, ctx.inputLength, StandardCharsets.US_ASCII);
+        }
 
         if (log.isDebugEnabled()) {
-            log.debug("[UniqID.getUniqID]" + sb.toString());
+            log.debug("[UniqID.getuniqIDHash]" + (new String(ctx.hex, 0, len)));
         }
 
-        return sb.toString();
+        return new String(ctx.hex, 0, len);
     }
 
-    public String getUniqIDHash() {
-        String id = getUniqID();
+    /**
+     * 生成散列ID并追加到<code>sb</code>，不创建中间字符串
+     *
+     * @param sb   目标
+     * @param mode {@link #HASH_MD5}或{@link #HASH_MURMUR3}
+     * @return sb
+     */
+    public StringBuilder appendUniqIDHashTo(StringBuilder sb, int mode) {
+        IdContext ctx = idContext.get();
+        int len = ctx.hash(mode);
+        if (len < 0) {
+            for (int i = 0; i < ctx.inputLength; i++) {
+                sb.append((char) ctx.input[i]);
+            }
+            return sb;
+        }
+        return sb.append(ctx.hex, 0, len);
+    }
 
-        if (mHasher != null) {
-            synchronized (mHasher) {
-                byte[] bt = mHasher.digest(id.getBytes());
-                int l = bt.length;
+    /**
+     * 生成散列ID并写入字符数组
+     *
+     * @param dst  目标数组
+     * @param off  起始下标
+     * @param mode {@link #HASH_MD5}或{@link #HASH_MURMUR3}
+     * @return 写入的字符数
+     * @throws IndexOutOfBoundsException 剩余空间不足
+     */
+    public int writeUniqIDHashTo(char[] dst, int off, int mode) {
+        IdContext ctx = idContext.get();
+        int len = ctx.hash(mode);
+        if (len < 0) {
+            IdCodec.checkCapacity(dst, off, ctx.inputLength);
+            IdCodec.putAscii(ctx.input, ctx.inputLength, dst, off);
+            return ctx.inputLength;
+        }
+        IdCodec.checkCapacity(dst, off, len);
+        System.arraycopy(ctx.hex, 0, dst, off, len);
+        return len;
+    }
 
-                char[] out = new char[l << 1];
+    /**
+     * 生成散列ID并以ASCII字节写入<code>dst</code>，position随之前移
+     *
+     * @param dst  目标缓冲区
+     * @param mode {@link #HASH_MD5}或{@link #HASH_MURMUR3}
+     * @return 写入的字节数
+     * @throws java.nio.BufferOverflowException 剩余空间不足
+     */
+    public int writeUniqIDHashTo(ByteBuffer dst, int mode) {
+        IdContext ctx = idContext.get();
+        int len = ctx.hash(mode);
+        if (len < 0) {
+            dst.put(ctx.input, 0, ctx.inputLength);
+            return ctx.inputLength;
+        }
+        if (dst.remaining() < len) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < len; i++) {
+            dst.put((byte) ctx.hex[i]);
+        }
+        return len;
+    }
+
+    /**
+     * 生成携带分片键的64位数字ID，分片键位于最低8位，见{@link ShardedIdGenerator}<br>
+     * 多节点部署时须为每个节点配置唯一的{@link #PROP_SHARDED_WORKER_ID}
+     *
+     * @param shard 分片键或租户键，取值[0, 255]
+     * @return 数字ID
+     */
+    public long getShardedUniqID(int shard) {
+        return sharded().nextId(shard);
+    }
+
+    /**
+     * 从{@link #getShardedUniqID(int)}生成的ID中取出分片键，O(1)位运算
+     *
+     * @param id ID
+     * @return 分片键
+     */
+    public static int shardOf(long id) {
+        return ShardedIdGenerator.defaultShardOf(id);
+    }
+
+    /**
+     * @return 节点标识，可观测其来源与解析耗时
+     */
+    public NodeIdentity getNodeIdentity() {
+        return identity;
+    }
+
+    /**
+     * @return 数字ID的时钟偏移指标
+     */
+    public ClockSkewMetrics getClockSkewMetrics() {
+        return snowflake().getMetrics();
+    }
 
-                for (int i = 0, j = 0; i < l; i++) {
-                    out[j++] = digits[(0xF0 & bt[i]) >>> 4];
-                    out[j++] = digits[0x0F & bt[i]];
+    /**
+     * 首次使用时以当前节点标识创建，此后workerId不再变化
+     */
+    private ShardedIdGenerator sharded() {
+        ShardedIdGenerator generator = sharded;
+        if (generator == null) {
+            synchronized (this) {
+                generator = sharded;
+                if (generator == null) {
+                    generator = new ShardedIdGenerator(
+                            workerId(PROP_SHARDED_WORKER_ID, (1L << ShardedIdGenerator.DEFAULT_WORKER_BITS) - 1),
+                            ShardedIdGenerator.DEFAULT_WORKER_BITS, ShardedIdGenerator.DEFAULT_SHARD_BITS,
+                            Long.getLong(PROP_MAX_BORROW_MILLIS, Long.MAX_VALUE),
+                            ClockSkewPolicy.valueOf(System.getProperty(PROP_CLOCK_SKEW_POLICY, "WAIT")));
+                    sharded = generator;
                 }
+            }
+        }
+        return generator;
+    }
 
-                if (log.isDebugEnabled()) {
-                    log.debug("[UniqID.getuniqIDHash]" + (new String(out)));
+    /**
+     * 首次使用时以当前节点标识创建，此后workerId不再变化
+     */
+    private SnowflakeIdGenerator snowflake() {
+        SnowflakeIdGenerator generator = snowflake;
+        if (generator == null) {
+            synchronized (this) {
+                generator = snowflake;
+                if (generator == null) {
+                    generator = new SnowflakeIdGenerator(workerId(PROP_WORKER_ID, SnowflakeIdGenerator.MAX_WORKER_ID),
+                            Long.getLong(PROP_MAX_BORROW_MILLIS, Long.MAX_VALUE),
+                            ClockSkewPolicy.valueOf(System.getProperty(PROP_CLOCK_SKEW_POLICY, "WAIT")));
+                    snowflake = generator;
+                    if (System.getProperty(PROP_WORKER_ID) == null && !identity.isResolved()) {
+                        log.warn("[UniqID] node identity not resolved yet, workerId derived from fallback: "
+                                + generator.getWorkerId());
+                    }
                 }
+            }
+        }
+        return generator;
+    }
 
-                return new String(out);
+    /**
+     * 优先使用系统属性配置的workerId，未配置时由节点标识推导
+     *
+     * @throws IllegalStateException 配置值不是[0, max]内的整数
+     */
+    private long workerId(String property, long max) {
+        String configured = System.getProperty(property);
+        if (configured == null) {
+            return identity.numericId(max);
+        }
+        long id;
+        try {
+            id = Long.parseLong(configured.trim());
+        } catch (NumberFormatException e) {
+            id = -1;
+        }
+        if (id < 0 || id > max) {
+            throw new IllegalStateException(property + " must be between 0 and " + max + ", but was " + configured);
+        }
+        return id;
+    }
+
+    /**
+     * 线程私有的ID渲染与散列上下文，所有缓冲区均可复用
+     */
+    private class IdContext {
+        private final MessageDigest md5    = newMd5();
+        private       byte[]        input  = new byte[64];
+        private final byte[]        digest = new byte[16];
+        private final long[]        murmur = new long[2];
+        private final char[]        hex    = new char[32];
+        private       int           inputLength;
+
+        /**
+         * 按{@link #getUniqID()}的格式把ID写入{@link #input}
+         *
+         * @return ID长度
+         */
+        int renderUniqID() {
+            byte[] node = striped.nodeBytes();
+            ensureCapacity(node.length + 40);
+            int off = IdCodec.putDecimal(timer.getCurrentTime(), input, 0);
+            input[off++] = '-';
+            off = IdCodec.putDecimal(random.nextInt(8999) + 1000, input, off);
+            input[off++] = '-';
+            System.arraycopy(node, 0, input, off, node.length);
+            off += node.length;
+            input[off++] = '-';
+            return IdCodec.putDecimal(Thread.currentThread().hashCode(), input, off);
+        }
+
+        /**
+         * 生成原始ID并散列，结果写入{@link #hex}
+         *
+         * @return 十六进制长度，MD5不可用时返回-1
+         */
+        int hash(int mode) {
+            byte[] node = striped.nodeBytes();
+            ensureCapacity(StripedIdGenerator.maxLength(node));
+            inputLength = striped.nextId(node, input, 0);
+            if (mode == HASH_MURMUR3) {
+                Murmur3.hash128(input, 0, inputLength, 0, murmur);
+                return IdCodec.putHex(murmur[1], hex, IdCodec.putHex(murmur[0], hex, 0));
+            }
+            if (md5 == null) {
+                return -1;
+            }
+            md5.update(input, 0, inputLength);
+            try {
+                md5.digest(digest, 0, digest.length);
+            } catch (DigestException e) {
+                md5.reset();
+                return -1;
             }
-        } else {
-            return id;
+            return IdCodec.putHex(digest, digest.length, hex, 0);
+        }
+
+        private void ensureCapacity(int length) {
+            if (input.length < length) {
+                input = new byte[length];
+            }
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException nex) {
+            log.error("[UniqID]new MD5 Hasher error", nex);
+            return null;
         }
     }
 
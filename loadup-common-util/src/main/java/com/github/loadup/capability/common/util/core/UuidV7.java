@@ -0,0 +1,146 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * UUIDv7（RFC 9562）：48位毫秒时间戳 + 版本号 + 74位随机数<br>
+ *
+ * <p>返回标准的{@link UUID}，可直接映射到数据库的uuid/binary(16)列；
+ * 同一毫秒内把74位随机部分当作计数器递增，保证单调，溢出时借用下一毫秒。
+ * 随机数取自{@link ThreadLocalRandom}，不可用于安全令牌。
+ */
+public final class UuidV7 {
+
+    private static final long VERSION     = 0x7000L;
+    private static final long VARIANT     = 0x8000000000000000L;
+    private static final long RAND_A_MASK = 0x0FFFL;
+    private static final long RAND_B_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    private static final AtomicReference<UUID> LAST = new AtomicReference<>(new UUID(VERSION, VARIANT));
+
+    /**
+     * 禁用构造函数
+     */
+    private UuidV7() {
+        // 禁用构造函数
+    }
+
+    /**
+     * 生成单调递增的UUIDv7
+     *
+     * @return UUID
+     */
+    public static UUID next() {
+        for (; ; ) {
+            UUID last = LAST.get();
+            long now = System.currentTimeMillis();
+            long lastMsb = last.getMostSignificantBits();
+            long msb;
+            long lsb;
+            if (now > (lastMsb >>> 16)) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                msb = now << 16 | VERSION | (random.nextInt() & RAND_A_MASK);
+                lsb = VARIANT | (random.nextLong() & RAND_B_MASK);
+            } else {
+                long randB = (last.getLeastSignificantBits() & RAND_B_MASK) + 1;
+                msb = lastMsb;
+                if (randB > RAND_B_MASK) {
+                    randB = 0;
+                    long randA = (lastMsb & RAND_A_MASK) + 1;
+                    long ts = lastMsb >>> 16;
+                    if (randA > RAND_A_MASK) {
+                        randA = 0;
+                        ts++;
+                    }
+                    msb = ts << 16 | VERSION | randA;
+                }
+                lsb = VARIANT | randB;
+            }
+            UUID next = new UUID(msb, lsb);
+            if (LAST.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @param uuid UUIDv7
+     * @return 毫秒时间戳
+     */
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    /**
+     * @param uuid UUID
+     * @return 16字节大端序二进制
+     */
+    public static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[Ulid.BYTES];
+        Ulid.putLong(uuid.getMostSignificantBits(), bytes, 0);
+        Ulid.putLong(uuid.getLeastSignificantBits(), bytes, 8);
+        return bytes;
+    }
+
+    /**
+     * @param bytes 16字节大端序二进制
+     * @return UUID
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != Ulid.BYTES) {
+            throw new IllegalArgumentException("uuid requires " + Ulid.BYTES + " bytes");
+        }
+        return new UUID(Ulid.getLong(bytes, 0), Ulid.getLong(bytes, 8));
+    }
+
+    /**
+     * @param uuid UUID
+     * @return 26位Crockford Base32字符串，排序与二进制一致
+     */
+    public static String toBase32(UUID uuid) {
+        char[] chars = new char[Crockford32.LENGTH];
+        Crockford32.encode(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 解析{@link #toBase32(UUID)}生成的字符串
+     *
+     * @param s 26位Crockford Base32字符串
+     * @return UUID
+     * @throws IllegalArgumentException 格式不合法
+     */
+    public static UUID parseBase32(CharSequence s) {
+        long[] value = new long[2];
+        Crockford32.decode(s, value);
+        return new UUID(value[0], value[1]);
+    }
+}
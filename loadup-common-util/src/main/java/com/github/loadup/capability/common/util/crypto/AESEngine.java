@@ -0,0 +1,358 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * 绑定单个密钥的AES加解密引擎，与{@link AESUtil}使用相同的算法（provider默认的"AES"）<br>
+ *
+ * <p>密钥只解析一次；每个线程持有各自已初始化的加密、解密{@link Cipher}，
+ * 后续调用不再执行{@link Cipher#getInstance(String)}与{@link Cipher#init(int, java.security.Key)}。
+ * 通过{@link #of(String)}获取的实例按Base64密钥缓存，线程安全，可长期持有。
+ */
+public class AESEngine {
+
+    /**
+     * AES常量
+     */
+    static final String AES = "AES";
+
+    /**
+     * 流式加解密的缓冲区大小
+     */
+    static final int STREAM_BUFFER_SIZE = 8192;
+
+    /**
+     * AES分组长度
+     */
+    static final int BLOCK_SIZE = 16;
+
+    /**
+     * 缓存的密钥个数上限
+     */
+    private static final int MAX_CACHED_KEYS = 1024;
+
+    private static final BoundedCache<String, AESEngine> ENGINES = new BoundedCache<>(MAX_CACHED_KEYS);
+
+    private final SecretKey           key;
+    private final ThreadLocal<Cipher> encryptCipher = new ThreadLocal<>();
+    private final ThreadLocal<Cipher> decryptCipher = new ThreadLocal<>();
+
+    /**
+     * @param key 密钥原文，长度16、24或32字节
+     */
+    public AESEngine(byte[] key) {
+        this(new SecretKeySpec(key, AES));
+    }
+
+    /**
+     * @param key AES密钥
+     */
+    public AESEngine(SecretKey key) {
+        this.key = key;
+    }
+
+    /**
+     * 获取Base64密钥对应的引擎，同一密钥返回同一实例
+     *
+     * @param base64Key Base64编码的密钥
+     * @return 引擎
+     */
+    public static AESEngine of(String base64Key) {
+        return ENGINES.get(base64Key, k -> new AESEngine(Base64.decodeBase64(k.getBytes())));
+    }
+
+    /**
+     * 加密
+     *
+     * @param content 原文
+     * @return 密文
+     * @throws CryptoException
+     */
+    public byte[] encrypt(byte[] content) throws CryptoException {
+        return doFinal(encryptCipher, Cipher.ENCRYPT_MODE, content);
+    }
+
+    /**
+     * 解密
+     *
+     * @param content 密文
+     * @return 原文
+     * @throws CryptoException
+     */
+    public byte[] decrypt(byte[] content) throws CryptoException {
+        return doFinal(decryptCipher, Cipher.DECRYPT_MODE, content);
+    }
+
+    /**
+     * 加密到调用方提供的数组，不分配中间数组
+     *
+     * @param src    原文
+     * @param off    原文起始下标
+     * @param len    原文长度
+     * @param dst    输出，从<code>dstOff</code>起剩余空间不少于{@link #encryptedLength(int)}
+     * @param dstOff 输出起始下标
+     * @return 写入的字节数
+     * @throws CryptoException 加密失败或输出空间不足
+     */
+    public int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff) throws CryptoException {
+        return doFinal(encryptCipher, Cipher.ENCRYPT_MODE, src, off, len, dst, dstOff);
+    }
+
+    /**
+     * 解密到调用方提供的数组，不分配中间数组
+     *
+     * @param src    密文
+     * @param off    密文起始下标
+     * @param len    密文长度
+     * @param dst    输出，从<code>dstOff</code>起剩余空间不少于<code>len</code>
+     * @param dstOff 输出起始下标
+     * @return 写入的字节数
+     * @throws CryptoException 解密失败或输出空间不足
+     */
+    public int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff) throws CryptoException {
+        return doFinal(decryptCipher, Cipher.DECRYPT_MODE, src, off, len, dst, dstOff);
+    }
+
+    /**
+     * 加密<code>src</code>剩余的全部字节到<code>dst</code>，支持堆内与直接缓冲区，两者的position随之前移
+     *
+     * @param src 原文
+     * @param dst 输出，剩余空间不少于{@link #encryptedLength(int)}
+     * @return 写入的字节数
+     * @throws CryptoException 加密失败或输出空间不足
+     */
+    public int encrypt(ByteBuffer src, ByteBuffer dst) throws CryptoException {
+        return doFinal(encryptCipher, Cipher.ENCRYPT_MODE, src, dst);
+    }
+
+    /**
+     * 解密<code>src</code>剩余的全部字节到<code>dst</code>，支持堆内与直接缓冲区，两者的position随之前移
+     *
+     * @param src 密文
+     * @param dst 输出，剩余空间不少于密文长度
+     * @return 写入的字节数
+     * @throws CryptoException 解密失败或输出空间不足
+     */
+    public int decrypt(ByteBuffer src, ByteBuffer dst) throws CryptoException {
+        return doFinal(decryptCipher, Cipher.DECRYPT_MODE, src, dst);
+    }
+
+    /**
+     * 计算密文长度（PKCS5填充至少补一个分组）
+     *
+     * @param length 原文长度
+     * @return 密文长度
+     */
+    public static int encryptedLength(int length) {
+        return (length / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    }
+
+    /**
+     * 流式加密：从<code>in</code>读取原文，把二进制密文写入<code>out</code>，内存占用与数据大小无关<br>
+     * 不关闭流；需要Base64文本时可用commons-codec的Base64OutputStream包装<code>out</code>
+     *
+     * @param in  原文输入流
+     * @param out 密文输出流
+     * @return 写出的字节数
+     * @throws IOException     读写失败
+     * @throws CryptoException 加密失败
+     */
+    public long encrypt(InputStream in, OutputStream out) throws IOException, CryptoException {
+        return transform(encryptCipher, Cipher.ENCRYPT_MODE, in, out);
+    }
+
+    /**
+     * 流式解密：从<code>in</code>读取二进制密文，把原文写入<code>out</code>，内存占用与数据大小无关，不关闭流
+     *
+     * @param in  密文输入流
+     * @param out 原文输出流
+     * @return 写出的字节数
+     * @throws IOException     读写失败
+     * @throws CryptoException 解密失败
+     */
+    public long decrypt(InputStream in, OutputStream out) throws IOException, CryptoException {
+        return transform(decryptCipher, Cipher.DECRYPT_MODE, in, out);
+    }
+
+    /**
+     * 文件通道加密：从<code>src</code>当前位置读到末尾，密文写入<code>dst</code>当前位置，使用固定大小的直接缓冲区
+     *
+     * @param src 原文通道
+     * @param dst 密文通道
+     * @return 写出的字节数
+     * @throws IOException     读写失败
+     * @throws CryptoException 加密失败
+     */
+    public long encrypt(FileChannel src, FileChannel dst) throws IOException, CryptoException {
+        return transform(encryptCipher, Cipher.ENCRYPT_MODE, src, dst);
+    }
+
+    /**
+     * 文件通道解密：从<code>src</code>当前位置读到末尾，原文写入<code>dst</code>当前位置，使用固定大小的直接缓冲区
+     *
+     * @param src 密文通道
+     * @param dst 原文通道
+     * @return 写出的字节数
+     * @throws IOException     读写失败
+     * @throws CryptoException 解密失败
+     */
+    public long decrypt(FileChannel src, FileChannel dst) throws IOException, CryptoException {
+        return transform(decryptCipher, Cipher.DECRYPT_MODE, src, dst);
+    }
+
+    /**
+     * @return 密钥
+     */
+    public SecretKey getKey() {
+        return key;
+    }
+
+    /**
+     * 获取当前线程已初始化的Cipher
+     *
+     * @param holder 线程缓存
+     * @param mode   {@link Cipher#ENCRYPT_MODE}或{@link Cipher#DECRYPT_MODE}
+     * @return Cipher
+     * @throws GeneralSecurityException
+     */
+    Cipher cipher(ThreadLocal<Cipher> holder, int mode) throws GeneralSecurityException {
+        Cipher cipher = holder.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(AES);
+            cipher.init(mode, key);
+            holder.set(cipher);
+        }
+        return cipher;
+    }
+
+    private byte[] doFinal(ThreadLocal<Cipher> holder, int mode, byte[] content) throws CryptoException {
+        try {
+            return cipher(holder, mode).doFinal(content);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // 异常后Cipher状态不确定，丢弃后下次重新初始化
+            holder.remove();
+            throw new CryptoException(mode == Cipher.ENCRYPT_MODE ? "encrypt failed." : "decrypt failed.", e);
+        }
+    }
+
+    private int doFinal(ThreadLocal<Cipher> holder, int mode, byte[] src, int off, int len, byte[] dst,
+                        int dstOff) throws CryptoException {
+        try {
+            return cipher(holder, mode).doFinal(src, off, len, dst, dstOff);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            holder.remove();
+            throw new CryptoException(mode == Cipher.ENCRYPT_MODE ? "encrypt failed." : "decrypt failed.", e);
+        }
+    }
+
+    private int doFinal(ThreadLocal<Cipher> holder, int mode, ByteBuffer src, ByteBuffer dst) throws CryptoException {
+        try {
+            return cipher(holder, mode).doFinal(src, dst);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            holder.remove();
+            throw new CryptoException(mode == Cipher.ENCRYPT_MODE ? "encrypt failed." : "decrypt failed.", e);
+        }
+    }
+
+    private long transform(ThreadLocal<Cipher> holder, int mode, InputStream in, OutputStream out)
+            throws IOException, CryptoException {
+        byte[] input = new byte[STREAM_BUFFER_SIZE];
+        byte[] output = new byte[STREAM_BUFFER_SIZE + BLOCK_SIZE];
+        long written = 0;
+        boolean completed = false;
+        try {
+            Cipher cipher = cipher(holder, mode);
+            int n;
+            while ((n = in.read(input)) != -1) {
+                int len = cipher.update(input, 0, n, output, 0);
+                out.write(output, 0, len);
+                written += len;
+            }
+            int len = cipher.doFinal(output, 0);
+            out.write(output, 0, len);
+            written += len;
+            completed = true;
+            return written;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException(mode == Cipher.ENCRYPT_MODE ? "encrypt failed." : "decrypt failed.", e);
+        } finally {
+            if (!completed) {
+                // 中途失败时Cipher残留未处理的数据，丢弃后下次重新初始化
+                holder.remove();
+            }
+        }
+    }
+
+    private long transform(ThreadLocal<Cipher> holder, int mode, FileChannel src, FileChannel dst)
+            throws IOException, CryptoException {
+        ByteBuffer input = ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE);
+        ByteBuffer output = ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE + BLOCK_SIZE);
+        long written = 0;
+        boolean completed = false;
+        try {
+            Cipher cipher = cipher(holder, mode);
+            while (src.read(input) != -1) {
+                input.flip();
+                cipher.update(input, output);
+                written += drain(output, dst);
+                input.clear();
+            }
+            input.flip();
+            cipher.doFinal(input, output);
+            written += drain(output, dst);
+            completed = true;
+            return written;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException(mode == Cipher.ENCRYPT_MODE ? "encrypt failed." : "decrypt failed.", e);
+        } finally {
+            if (!completed) {
+                holder.remove();
+            }
+        }
+    }
+
+    private static int drain(ByteBuffer output, FileChannel dst) throws IOException {
+        output.flip();
+        int len = output.remaining();
+        while (output.hasRemaining()) {
+            dst.write(output);
+        }
+        output.clear();
+        return len;
+    }
+}
@@ -0,0 +1,313 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * 绑定单个密钥的AES-GCM认证加密引擎<br>
+ *
+ * <p>密文格式为<code>nonce(12) || ciphertext || tag(16)</code>，解密时校验tag，
+ * 密文或附加数据（AAD）被篡改时抛出{@link CryptoException}。
+ *
+ * <p>nonce由实例级随机前缀（4字节）与计数器（8字节）组成：计数器起点随机，
+ * 每个线程一次从共享的{@link AtomicLong}领取{@link #NONCE_BLOCK}个计数值，在本线程内递增使用，
+ * 热路径上既不访问{@link SecureRandom}也没有跨线程竞争。同一实例内nonce不会重复。
+ */
+public class AESGCMEngine {
+
+    /**
+     * 算法
+     */
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    /**
+     * nonce长度
+     */
+    public static final int NONCE_LENGTH = 12;
+
+    /**
+     * tag长度
+     */
+    public static final int TAG_LENGTH = 16;
+
+    /**
+     * 每个线程一次领取的计数值个数
+     */
+    static final int NONCE_BLOCK = 1024;
+
+    private static final int MAX_CACHED_KEYS = 1024;
+
+    private static final BoundedCache<String, AESGCMEngine> ENGINES = new BoundedCache<>(MAX_CACHED_KEYS);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKey                key;
+    private final int                      noncePrefix;
+    private final AtomicLong               nonceCounter;
+    private final ThreadLocal<ThreadState> encryptState  = ThreadLocal.withInitial(ThreadState::new);
+    private final ThreadLocal<Cipher>      decryptCipher = new ThreadLocal<>();
+
+    /**
+     * @param key 密钥原文，长度16、24或32字节
+     */
+    public AESGCMEngine(byte[] key) {
+        this(new SecretKeySpec(key, AESEngine.AES));
+    }
+
+    /**
+     * @param key AES密钥
+     */
+    public AESGCMEngine(SecretKey key) {
+        this.key = key;
+        this.noncePrefix = RANDOM.nextInt();
+        this.nonceCounter = new AtomicLong(RANDOM.nextLong());
+    }
+
+    /**
+     * 获取Base64密钥对应的引擎，同一密钥返回同一实例
+     *
+     * @param base64Key Base64编码的密钥
+     * @return 引擎
+     */
+    public static AESGCMEngine of(String base64Key) {
+        return ENGINES.get(base64Key, k -> new AESGCMEngine(Base64.decodeBase64(k.getBytes())));
+    }
+
+    /**
+     * 计算密文长度
+     *
+     * @param length 原文长度
+     * @return 密文长度（含nonce与tag）
+     */
+    public static int encryptedLength(int length) {
+        return NONCE_LENGTH + length + TAG_LENGTH;
+    }
+
+    /**
+     * 加密
+     *
+     * @param content 原文
+     * @return nonce || 密文 || tag
+     * @throws CryptoException
+     */
+    public byte[] encrypt(byte[] content) throws CryptoException {
+        return encrypt(content, null);
+    }
+
+    /**
+     * 加密
+     *
+     * @param content 原文
+     * @param aad     参与认证但不加密的附加数据，可为null
+     * @return nonce || 密文 || tag
+     * @throws CryptoException
+     */
+    public byte[] encrypt(byte[] content, byte[] aad) throws CryptoException {
+        byte[] out = new byte[encryptedLength(content.length)];
+        encrypt(content, 0, content.length, aad, out, 0);
+        return out;
+    }
+
+    /**
+     * 加密到调用方提供的数组
+     *
+     * @param src    原文
+     * @param off    原文起始下标
+     * @param len    原文长度
+     * @param aad    附加数据，可为null
+     * @param dst    输出，从<code>dstOff</code>起剩余空间不少于{@link #encryptedLength(int)}
+     * @param dstOff 输出起始下标
+     * @return 写入的字节数
+     * @throws CryptoException
+     */
+    public int encrypt(byte[] src, int off, int len, byte[] aad, byte[] dst, int dstOff) throws CryptoException {
+        ThreadState state = encryptState.get();
+        try {
+            return state.encrypt(src, off, len, aad, dst, dstOff);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            encryptState.remove();
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * 批量加密：同一线程状态下连续处理，适合一次写入多个敏感字段
+     *
+     * @param contents 原文列表，元素不可为null
+     * @return 与输入顺序一致的密文列表
+     * @throws CryptoException
+     */
+    public List<byte[]> encryptAll(List<byte[]> contents) throws CryptoException {
+        ThreadState state = encryptState.get();
+        List<byte[]> result = new ArrayList<>(contents.size());
+        try {
+            for (byte[] content : contents) {
+                byte[] out = new byte[encryptedLength(content.length)];
+                state.encrypt(content, 0, content.length, null, out, 0);
+                result.add(out);
+            }
+            return result;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            encryptState.remove();
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * 解密并校验
+     *
+     * @param content nonce || 密文 || tag
+     * @return 原文
+     * @throws CryptoException 校验失败或格式错误
+     */
+    public byte[] decrypt(byte[] content) throws CryptoException {
+        return decrypt(content, null);
+    }
+
+    /**
+     * 解密并校验
+     *
+     * @param content nonce || 密文 || tag
+     * @param aad     加密时使用的附加数据，可为null
+     * @return 原文
+     * @throws CryptoException 校验失败或格式错误
+     */
+    public byte[] decrypt(byte[] content, byte[] aad) throws CryptoException {
+        if (content.length < NONCE_LENGTH + TAG_LENGTH) {
+            throw new CryptoException("decrypt failed, content too short.");
+        }
+        byte[] out = new byte[content.length - NONCE_LENGTH - TAG_LENGTH];
+        decrypt(content, 0, content.length, aad, out, 0);
+        return out;
+    }
+
+    /**
+     * 解密并校验到调用方提供的数组
+     *
+     * @param src    nonce || 密文 || tag
+     * @param off    起始下标
+     * @param len    长度
+     * @param aad    附加数据，可为null
+     * @param dst    输出，从<code>dstOff</code>起剩余空间不少于<code>len - 28</code>
+     * @param dstOff 输出起始下标
+     * @return 写入的字节数
+     * @throws CryptoException 校验失败或格式错误
+     */
+    public int decrypt(byte[] src, int off, int len, byte[] aad, byte[] dst, int dstOff) throws CryptoException {
+        if (len < NONCE_LENGTH + TAG_LENGTH) {
+            throw new CryptoException("decrypt failed, content too short.");
+        }
+        try {
+            Cipher cipher = decryptCipher.get();
+            if (cipher == null) {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+                decryptCipher.set(cipher);
+            }
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, src, off, NONCE_LENGTH));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            return cipher.doFinal(src, off + NONCE_LENGTH, len - NONCE_LENGTH, dst, dstOff);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // 包含AEADBadTagException：tag校验失败
+            decryptCipher.remove();
+            throw new CryptoException("decrypt failed.", e);
+        }
+    }
+
+    /**
+     * 批量解密
+     *
+     * @param contents 密文列表，元素不可为null
+     * @return 与输入顺序一致的原文列表
+     * @throws CryptoException 任一条校验失败
+     */
+    public List<byte[]> decryptAll(List<byte[]> contents) throws CryptoException {
+        List<byte[]> result = new ArrayList<>(contents.size());
+        for (byte[] content : contents) {
+            result.add(decrypt(content, null));
+        }
+        return result;
+    }
+
+    /**
+     * @return 密钥
+     */
+    public SecretKey getKey() {
+        return key;
+    }
+
+    /**
+     * 线程私有的加密Cipher与nonce计数区间
+     */
+    private final class ThreadState {
+
+        private final byte[] nonce = new byte[NONCE_LENGTH];
+        private Cipher       cipher;
+        private long         next;
+        private long         limit;
+
+        ThreadState() {
+            nonce[0] = (byte) (noncePrefix >>> 24);
+            nonce[1] = (byte) (noncePrefix >>> 16);
+            nonce[2] = (byte) (noncePrefix >>> 8);
+            nonce[3] = (byte) noncePrefix;
+        }
+
+        int encrypt(byte[] src, int off, int len, byte[] aad, byte[] dst, int dstOff)
+                throws GeneralSecurityException {
+            if (cipher == null) {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+            }
+            if (next == limit) {
+                next = nonceCounter.getAndAdd(NONCE_BLOCK);
+                limit = next + NONCE_BLOCK;
+            }
+            long counter = next++;
+            for (int i = NONCE_LENGTH - 1; i >= 4; i--) {
+                nonce[i] = (byte) counter;
+                counter >>>= 8;
+            }
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            System.arraycopy(nonce, 0, dst, dstOff, NONCE_LENGTH);
+            return NONCE_LENGTH + cipher.doFinal(src, off, len, dst, dstOff + NONCE_LENGTH);
+        }
+    }
+}
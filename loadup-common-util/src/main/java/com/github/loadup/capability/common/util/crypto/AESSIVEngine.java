@@ -0,0 +1,333 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * 绑定单个密钥的确定性认证加密AES-SIV（RFC 5297）<br>
+ *
+ * <p>相同密钥、相同附加数据下，相同原文总是得到相同密文，可直接对加密列做等值查询与建索引；
+ * 代价是会暴露"两条记录原文是否相同"。密文格式为<code>SIV(16) || 密文</code>，解密时校验SIV。
+ *
+ * <p>密钥长度32、48或64字节，前半用于S2V（AES-CMAC），后半用于CTR。子密钥在构造时算好；
+ * 每个线程缓存已初始化的CBC（用于CMAC）与ECB（用于生成CTR密钥流）Cipher，调用时不再重新初始化。
+ */
+public class AESSIVEngine {
+
+    /**
+     * SIV长度
+     */
+    public static final int SIV_LENGTH = 16;
+
+    private static final int BLOCK = 16;
+
+    /**
+     * 每次批量生成的CTR密钥流块数
+     */
+    private static final int KEYSTREAM_BLOCKS = 16;
+
+    private static final int MAX_CACHED_KEYS = 1024;
+
+    private static final BoundedCache<String, AESSIVEngine> ENGINES = new BoundedCache<>(MAX_CACHED_KEYS);
+
+    private final SecretKey           macKey;
+    private final SecretKey           ctrKey;
+    private final byte[]              subkey1;
+    private final byte[]              subkey2;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * @param key 密钥原文，长度32、48或64字节
+     * @throws IllegalArgumentException 密钥长度非法
+     */
+    public AESSIVEngine(byte[] key) {
+        if (key.length != 32 && key.length != 48 && key.length != 64) {
+            throw new IllegalArgumentException("AES-SIV key must be 32, 48 or 64 bytes.");
+        }
+        int half = key.length / 2;
+        this.macKey = new SecretKeySpec(key, 0, half, AESEngine.AES);
+        this.ctrKey = new SecretKeySpec(key, half, half, AESEngine.AES);
+        try {
+            Cipher ecb = Cipher.getInstance("AES/ECB/NoPadding");
+            ecb.init(Cipher.ENCRYPT_MODE, macKey);
+            this.subkey1 = dbl(ecb.doFinal(new byte[BLOCK]));
+            this.subkey2 = dbl(subkey1);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("invalid AES-SIV key.", e);
+        }
+    }
+
+    /**
+     * 获取Base64密钥对应的引擎，同一密钥返回同一实例
+     *
+     * @param base64Key Base64编码的密钥
+     * @return 引擎
+     */
+    public static AESSIVEngine of(String base64Key) {
+        return ENGINES.get(base64Key, k -> new AESSIVEngine(Base64.decodeBase64(k.getBytes())));
+    }
+
+    /**
+     * 加密
+     *
+     * @param content        原文
+     * @param associatedData 参与认证的附加数据，按顺序参与计算，可为空
+     * @return SIV || 密文
+     * @throws CryptoException
+     */
+    public byte[] encrypt(byte[] content, byte[]... associatedData) throws CryptoException {
+        byte[] out = new byte[SIV_LENGTH + content.length];
+        encrypt(content, 0, content.length, out, 0, associatedData);
+        return out;
+    }
+
+    /**
+     * 加密到调用方提供的数组
+     *
+     * @param src            原文
+     * @param off            原文起始下标
+     * @param len            原文长度
+     * @param dst            输出，从<code>dstOff</code>起剩余空间不少于<code>len + 16</code>
+     * @param dstOff         输出起始下标
+     * @param associatedData 附加数据
+     * @return 写入的字节数
+     * @throws CryptoException
+     */
+    public int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff, byte[]... associatedData)
+            throws CryptoException {
+        Worker worker = workers.get();
+        try {
+            worker.s2v(associatedData, src, off, len, dst, dstOff);
+            worker.ctr(dst, dstOff, src, off, len, dst, dstOff + SIV_LENGTH);
+            return SIV_LENGTH + len;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            workers.remove();
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * 解密并校验
+     *
+     * @param content        SIV || 密文
+     * @param associatedData 加密时使用的附加数据
+     * @return 原文
+     * @throws CryptoException 校验失败或格式错误
+     */
+    public byte[] decrypt(byte[] content, byte[]... associatedData) throws CryptoException {
+        if (content.length < SIV_LENGTH) {
+            throw new CryptoException("decrypt failed, content too short.");
+        }
+        byte[] out = new byte[content.length - SIV_LENGTH];
+        decrypt(content, 0, content.length, out, 0, associatedData);
+        return out;
+    }
+
+    /**
+     * 解密并校验到调用方提供的数组，校验失败时输出区被清零
+     *
+     * @param src            SIV || 密文
+     * @param off            起始下标
+     * @param len            长度
+     * @param dst            输出，从<code>dstOff</code>起剩余空间不少于<code>len - 16</code>
+     * @param dstOff         输出起始下标
+     * @param associatedData 附加数据
+     * @return 写入的字节数
+     * @throws CryptoException 校验失败或格式错误
+     */
+    public int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff, byte[]... associatedData)
+            throws CryptoException {
+        if (len < SIV_LENGTH) {
+            throw new CryptoException("decrypt failed, content too short.");
+        }
+        int length = len - SIV_LENGTH;
+        Worker worker = workers.get();
+        boolean valid;
+        try {
+            worker.ctr(src, off, src, off + SIV_LENGTH, length, dst, dstOff);
+            worker.s2v(associatedData, dst, dstOff, length, worker.siv, 0);
+            int diff = 0;
+            for (int i = 0; i < SIV_LENGTH; i++) {
+                diff |= worker.siv[i] ^ src[off + i];
+            }
+            valid = diff == 0;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            workers.remove();
+            throw new CryptoException("decrypt failed.", e);
+        }
+        if (!valid) {
+            Arrays.fill(dst, dstOff, dstOff + length, (byte) 0);
+            throw new CryptoException("decrypt failed, siv mismatch.");
+        }
+        return length;
+    }
+
+    /**
+     * 按RFC 5297在GF(2^128)上乘以x
+     */
+    private static byte[] dbl(byte[] block) {
+        byte[] out = new byte[BLOCK];
+        dbl(block, out);
+        return out;
+    }
+
+    private static void dbl(byte[] block, byte[] out) {
+        int carry = (block[0] & 0x80) != 0 ? 0x87 : 0;
+        for (int i = 0; i < BLOCK - 1; i++) {
+            out[i] = (byte) (block[i] << 1 | (block[i + 1] & 0xff) >>> 7);
+        }
+        out[BLOCK - 1] = (byte) (block[BLOCK - 1] << 1 ^ carry);
+    }
+
+    private static void xor(byte[] a, byte[] b, int bOff, int len) {
+        for (int i = 0; i < len; i++) {
+            a[i] ^= b[bOff + i];
+        }
+    }
+
+    /**
+     * 线程私有的Cipher与缓冲区
+     */
+    private final class Worker {
+
+        private final Cipher cbc;
+        private final Cipher ecb;
+        private final byte[] zero      = new byte[BLOCK];
+        private final byte[] d         = new byte[BLOCK];
+        private final byte[] tmp       = new byte[BLOCK];
+        private final byte[] block     = new byte[BLOCK];
+        private final byte[] siv       = new byte[BLOCK];
+        private final byte[] scratch   = new byte[BLOCK * KEYSTREAM_BLOCKS];
+        private final byte[] counters  = new byte[BLOCK * KEYSTREAM_BLOCKS];
+        private final byte[] keystream = new byte[BLOCK * KEYSTREAM_BLOCKS];
+
+        Worker() {
+            try {
+                cbc = Cipher.getInstance("AES/CBC/NoPadding");
+                cbc.init(Cipher.ENCRYPT_MODE, macKey, new IvParameterSpec(new byte[BLOCK]));
+                ecb = Cipher.getInstance("AES/ECB/NoPadding");
+                ecb.init(Cipher.ENCRYPT_MODE, ctrKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("init AES-SIV cipher failed.", e);
+            }
+        }
+
+        /**
+         * S2V，结果写入<code>out[outOff, outOff + 16)</code>
+         */
+        void s2v(byte[][] associatedData, byte[] m, int off, int len, byte[] out, int outOff)
+                throws GeneralSecurityException {
+            cmac(zero, 0, BLOCK, null, d, 0);
+            for (byte[] ad : associatedData) {
+                dbl(d, d);
+                cmac(ad, 0, ad.length, null, tmp, 0);
+                xor(d, tmp, 0, BLOCK);
+            }
+            if (len >= BLOCK) {
+                // T = Sn xorend D，异或在CMAC读取最后16字节时完成，不复制原文
+                cmac(m, off, len, d, out, outOff);
+                return;
+            }
+            dbl(d, d);
+            xor(d, m, off, len);
+            d[len] ^= (byte) 0x80;
+            cmac(d, 0, BLOCK, null, out, outOff);
+        }
+
+        /**
+         * AES-CMAC；<code>mask</code>非null时先把它与消息的最后16字节异或
+         */
+        private void cmac(byte[] m, int off, int len, byte[] mask, byte[] out, int outOff)
+                throws GeneralSecurityException {
+            int head = len == 0 ? 0 : (len - 1) / BLOCK * BLOCK;
+            int masked = mask == null ? len : len - BLOCK;
+            int plain = Math.min(head, masked);
+            for (int done = 0; done < plain; ) {
+                int n = Math.min(plain - done, scratch.length);
+                cbc.update(m, off + done, n, scratch, 0);
+                done += n;
+            }
+            // 被异或的16字节可能跨越倒数第二个分组
+            int maskPos = 0;
+            if (masked < head) {
+                maskPos = head - masked;
+                for (int i = 0; i < maskPos; i++) {
+                    block[i] = (byte) (m[off + masked + i] ^ mask[i]);
+                }
+                cbc.update(block, 0, maskPos, scratch, 0);
+            }
+            int tail = len - head;
+            Arrays.fill(block, (byte) 0);
+            System.arraycopy(m, off + head, block, 0, tail);
+            if (mask != null) {
+                xor(block, mask, maskPos, tail);
+            }
+            if (tail == BLOCK) {
+                xor(block, subkey1, 0, BLOCK);
+            } else {
+                block[tail] ^= (byte) 0x80;
+                xor(block, subkey2, 0, BLOCK);
+            }
+            cbc.doFinal(block, 0, BLOCK, scratch, 0);
+            System.arraycopy(scratch, 0, out, outOff, BLOCK);
+        }
+
+        /**
+         * CTR，以清零第31、63位的SIV为初始计数器，用ECB批量生成密钥流
+         */
+        void ctr(byte[] iv, int ivOff, byte[] src, int off, int len, byte[] dst, int dstOff)
+                throws GeneralSecurityException {
+            System.arraycopy(iv, ivOff, tmp, 0, BLOCK);
+            tmp[8] &= 0x7f;
+            tmp[12] &= 0x7f;
+            for (int done = 0; done < len; ) {
+                int n = Math.min(len - done, keystream.length);
+                int blocks = (n + BLOCK - 1) / BLOCK;
+                for (int b = 0; b < blocks; b++) {
+                    System.arraycopy(tmp, 0, counters, b * BLOCK, BLOCK);
+                    // 128位大端计数器加一
+                    int i = BLOCK - 1;
+                    while (i >= 0 && ++tmp[i] == 0) {
+                        i--;
+                    }
+                }
+                ecb.doFinal(counters, 0, blocks * BLOCK, keystream, 0);
+                for (int i = 0; i < n; i++) {
+                    dst[dstOff + done + i] = (byte) (src[off + done + i] ^ keystream[i]);
+                }
+                done += n;
+            }
+        }
+    }
+}
@@ -29,12 +29,19 @@ package com.github.loadup.capability.common.util.crypto;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
 
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 /**
- * AES加解密工具类
+ * AES加解密工具类<br>
+ *
+ * <p>密钥解析结果与已初始化的Cipher由{@link AESEngine}按密钥缓存，本类只负责字符集与Base64转换；
+ * 同一密钥高频调用时可直接持有{@link AESEngine}。
  */
 public class AESUtil {
 
@@ -43,11 +50,6 @@ public class AESUtil {
      */
     public static final String CHARSET_UTF8 = "UTF-8";
 
-    /**
-     * AES常量
-     */
-    private static final String AES = "AES";
-
     /**
      * 加密<br/>
      * 默认 utf-8字符集
@@ -89,11 +91,10 @@ public class AESUtil {
             // 获取字符集
             charset = StringUtils.defaultIfBlank(charset, CHARSET_UTF8);
 
-            SecretKeySpec spec = new SecretKeySpec(Base64.decodeBase64(key.getBytes()), AES);
-            Cipher cipher = Cipher.getInstance(AES);
-            cipher.init(Cipher.ENCRYPT_MODE, spec);
-            byte[] byteEnc = cipher.doFinal(getContentBytes(content, charset));
+            byte[] byteEnc = AESEngine.of(key).encrypt(getContentBytes(content, charset));
             return new String(Base64.encodeBase64(byteEnc));
+        } catch (CryptoException e) {
+            throw e;
         } catch (Exception e) {
             throw new CryptoException("encrypt failed.", e);
         }
@@ -115,13 +116,196 @@ public class AESUtil {
             // 获取字符集
             charset = StringUtils.defaultIfBlank(charset, CHARSET_UTF8);
 
-            SecretKeySpec spec = new SecretKeySpec(Base64.decodeBase64(key.getBytes()), AES);
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, spec);
             byte[] encryptByte = Base64.decodeBase64(content.getBytes());
-            byte[] original = cipher.doFinal(encryptByte);
+            byte[] original = AESEngine.of(key).decrypt(encryptByte);
             return new String(original, charset);
+        } catch (CryptoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CryptoException("decrypt failed.", e);
+        }
+    }
+
+    /**
+     * AES-GCM认证加密，默认 utf-8字符集<br/>
+     * 与{@link #encrypt(String, String)}的密文不兼容
+     *
+     * @param content 原文
+     * @param key     密钥
+     * @return Base64编码的 nonce || 密文 || tag
+     * @throws CryptoException
+     */
+    public static String encryptGCM(final String content, final String key) throws CryptoException {
+        try {
+            byte[] byteEnc = AESGCMEngine.of(key).encrypt(content.getBytes(StandardCharsets.UTF_8));
+            return new String(Base64.encodeBase64(byteEnc), StandardCharsets.US_ASCII);
+        } catch (CryptoException e) {
+            throw e;
         } catch (Exception e) {
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * AES-GCM解密并校验，默认 utf-8字符集
+     *
+     * @param content Base64编码的 nonce || 密文 || tag
+     * @param key     密钥
+     * @return 原文
+     * @throws CryptoException 校验失败
+     */
+    public static String decryptGCM(final String content, final String key) throws CryptoException {
+        try {
+            byte[] original = AESGCMEngine.of(key).decrypt(Base64.decodeBase64(content.getBytes(StandardCharsets.US_ASCII)));
+            return new String(original, StandardCharsets.UTF_8);
+        } catch (CryptoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CryptoException("decrypt failed.", e);
+        }
+    }
+
+    /**
+     * AES-SIV确定性加密，默认 utf-8字符集<br/>
+     * 相同原文总是得到相同密文，可用于加密列的等值查询
+     *
+     * @param content 原文
+     * @param key     Base64编码的32、48或64字节密钥
+     * @return Base64编码的 SIV || 密文
+     * @throws CryptoException
+     */
+    public static String encryptSIV(final String content, final String key) throws CryptoException {
+        try {
+            byte[] byteEnc = AESSIVEngine.of(key).encrypt(content.getBytes(StandardCharsets.UTF_8));
+            return new String(Base64.encodeBase64(byteEnc), StandardCharsets.US_ASCII);
+        } catch (CryptoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * AES-SIV解密并校验，默认 utf-8字符集
+     *
+     * @param content Base64编码的 SIV || 密文
+     * @param key     Base64编码的密钥
+     * @return 原文
+     * @throws CryptoException 校验失败
+     */
+    public static String decryptSIV(final String content, final String key) throws CryptoException {
+        try {
+            byte[] original = AESSIVEngine.of(key).decrypt(Base64.decodeBase64(content.getBytes(StandardCharsets.US_ASCII)));
+            return new String(original, StandardCharsets.UTF_8);
+        } catch (CryptoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CryptoException("decrypt failed.", e);
+        }
+    }
+
+    /**
+     * 加密<code>src</code>剩余的全部字节到<code>dst</code>，输出二进制密文；需要文本时再调用{@link Base64Codec#encode}
+     *
+     * @param src 原文
+     * @param dst 输出，剩余空间不少于{@link AESEngine#encryptedLength(int)}
+     * @param key 密钥
+     * @return 写入的字节数
+     * @throws CryptoException
+     */
+    public static int encrypt(ByteBuffer src, ByteBuffer dst, String key) throws CryptoException {
+        try {
+            return AESEngine.of(key).encrypt(src, dst);
+        } catch (RuntimeException e) {
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * 解密<code>src</code>剩余的全部二进制密文到<code>dst</code>
+     *
+     * @param src 密文
+     * @param dst 输出，剩余空间不少于密文长度
+     * @param key 密钥
+     * @return 写入的字节数
+     * @throws CryptoException
+     */
+    public static int decrypt(ByteBuffer src, ByteBuffer dst, String key) throws CryptoException {
+        try {
+            return AESEngine.of(key).decrypt(src, dst);
+        } catch (RuntimeException e) {
+            throw new CryptoException("decrypt failed.", e);
+        }
+    }
+
+    /**
+     * 流式加密，输出二进制密文，不关闭流
+     *
+     * @param in  原文输入流
+     * @param out 密文输出流
+     * @param key 密钥
+     * @return 写出的字节数
+     * @throws IOException
+     * @throws CryptoException
+     */
+    public static long encrypt(InputStream in, OutputStream out, String key) throws IOException, CryptoException {
+        try {
+            return AESEngine.of(key).encrypt(in, out);
+        } catch (RuntimeException e) {
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * 流式解密，输入为二进制密文，不关闭流
+     *
+     * @param in  密文输入流
+     * @param out 原文输出流
+     * @param key 密钥
+     * @return 写出的字节数
+     * @throws IOException
+     * @throws CryptoException
+     */
+    public static long decrypt(InputStream in, OutputStream out, String key) throws IOException, CryptoException {
+        try {
+            return AESEngine.of(key).decrypt(in, out);
+        } catch (RuntimeException e) {
+            throw new CryptoException("decrypt failed.", e);
+        }
+    }
+
+    /**
+     * 文件通道加密，从<code>src</code>当前位置读到末尾
+     *
+     * @param src 原文通道
+     * @param dst 密文通道
+     * @param key 密钥
+     * @return 写出的字节数
+     * @throws IOException
+     * @throws CryptoException
+     */
+    public static long encrypt(FileChannel src, FileChannel dst, String key) throws IOException, CryptoException {
+        try {
+            return AESEngine.of(key).encrypt(src, dst);
+        } catch (RuntimeException e) {
+            throw new CryptoException("encrypt failed.", e);
+        }
+    }
+
+    /**
+     * 文件通道解密，从<code>src</code>当前位置读到末尾
+     *
+     * @param src 密文通道
+     * @param dst 原文通道
+     * @param key 密钥
+     * @return 写出的字节数
+     * @throws IOException
+     * @throws CryptoException
+     */
+    public static long decrypt(FileChannel src, FileChannel dst, String key) throws IOException, CryptoException {
+        try {
+            return AESEngine.of(key).decrypt(src, dst);
+        } catch (RuntimeException e) {
             throw new CryptoException("decrypt failed.", e);
         }
     }
@@ -0,0 +1,165 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 基于缓冲区的Base64编解码（标准字母表，带填充，不分行），与commons-codec的
+ * <code>Base64.encodeBase64</code>输出一致<br>
+ *
+ * <p>结果直接写入调用方提供的缓冲区，不产生中间数组与String；
+ * 加解密与Base64转换分离后，二进制链路可以完全跳过本步骤。
+ */
+public final class Base64Codec {
+
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+        .getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte   PAD      = '=';
+
+    private static final int[]  DECODE   = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+        }
+    }
+
+    /** 禁用构造函数 */
+    private Base64Codec() {
+        // 禁用构造函数
+    }
+
+    /**
+     * @param length 原文字节数
+     * @return 编码后的字节数
+     */
+    public static int encodedLength(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * @param length 编码后的字节数
+     * @return 解码后字节数的上限
+     */
+    public static int maxDecodedLength(int length) {
+        return length / 4 * 3 + 3;
+    }
+
+    /**
+     * 编码<code>src</code>剩余的全部字节到<code>dst</code>，两者的position随之前移
+     *
+     * @param src 原文
+     * @param dst 输出，剩余空间不少于{@link #encodedLength(int)}
+     * @return 写入的字节数
+     * @throws IllegalArgumentException 输出空间不足
+     */
+    public static int encode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int size = encodedLength(length);
+        if (dst.remaining() < size) {
+            throw new IllegalArgumentException("dst too small, need " + size + " bytes.");
+        }
+        int full = length / 3 * 3;
+        for (int i = 0; i < full; i += 3) {
+            int bits = (src.get() & 0xff) << 16 | (src.get() & 0xff) << 8 | (src.get() & 0xff);
+            dst.put(ALPHABET[bits >>> 18]);
+            dst.put(ALPHABET[(bits >>> 12) & 0x3f]);
+            dst.put(ALPHABET[(bits >>> 6) & 0x3f]);
+            dst.put(ALPHABET[bits & 0x3f]);
+        }
+        int rest = length - full;
+        if (rest > 0) {
+            int bits = (src.get() & 0xff) << 16;
+            if (rest == 2) {
+                bits |= (src.get() & 0xff) << 8;
+            }
+            dst.put(ALPHABET[bits >>> 18]);
+            dst.put(ALPHABET[(bits >>> 12) & 0x3f]);
+            dst.put(rest == 2 ? ALPHABET[(bits >>> 6) & 0x3f] : PAD);
+            dst.put(PAD);
+        }
+        return size;
+    }
+
+    /**
+     * 解码<code>src</code>剩余的全部字节到<code>dst</code>，两者的position随之前移
+     *
+     * @param src Base64文本的ASCII字节，长度为4的倍数
+     * @param dst 输出，剩余空间不少于实际解码长度
+     * @return 写入的字节数
+     * @throws IllegalArgumentException 非法字符、长度或输出空间不足
+     */
+    public static int decode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        if ((length & 3) != 0) {
+            throw new IllegalArgumentException("invalid base64 length " + length + ".");
+        }
+        int base = src.position();
+        int pad = 0;
+        if (length > 0 && src.get(base + length - 1) == PAD) {
+            pad = src.get(base + length - 2) == PAD ? 2 : 1;
+        }
+        int size = length / 4 * 3 - pad;
+        if (dst.remaining() < size) {
+            throw new IllegalArgumentException("dst too small, need " + size + " bytes.");
+        }
+        int groups = length / 4 - (pad > 0 ? 1 : 0);
+        for (int i = 0; i < groups; i++) {
+            int bits = sextet(src.get()) << 18 | sextet(src.get()) << 12 | sextet(src.get()) << 6 | sextet(src.get());
+            dst.put((byte) (bits >>> 16));
+            dst.put((byte) (bits >>> 8));
+            dst.put((byte) bits);
+        }
+        if (pad > 0) {
+            int bits = sextet(src.get()) << 18 | sextet(src.get()) << 12;
+            if (pad == 1) {
+                bits |= sextet(src.get()) << 6;
+            } else {
+                src.get();
+            }
+            src.get();
+            dst.put((byte) (bits >>> 16));
+            if (pad == 1) {
+                dst.put((byte) (bits >>> 8));
+            }
+        }
+        return size;
+    }
+
+    private static int sextet(byte b) {
+        int value = b < 0 ? -1 : DECODE[b];
+        if (value < 0) {
+            throw new IllegalArgumentException("invalid base64 character 0x" + Integer.toHexString(b & 0xff) + ".");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 有上限的并发缓存，用于缓存解析后的密钥等不可变对象<br>
+ *
+ * <p>命中路径只是一次{@link ConcurrentHashMap#get(Object)}；超过上限时随机淘汰一个条目，
+ * 密钥数量通常远小于上限，淘汰只是防止异常输入撑爆内存。
+ */
+final class BoundedCache<K, V> {
+
+    private final int                 maxSize;
+    private final ConcurrentMap<K, V> map = new ConcurrentHashMap<>();
+
+    BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    V get(K key, Function<? super K, ? extends V> loader) {
+        V value = map.get(key);
+        if (value != null) {
+            return value;
+        }
+        if (map.size() >= maxSize) {
+            Iterator<K> it = map.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return map.computeIfAbsent(key, loader);
+    }
+
+    void remove(K key) {
+        map.remove(key);
+    }
+
+    int size() {
+        return map.size();
+    }
+}
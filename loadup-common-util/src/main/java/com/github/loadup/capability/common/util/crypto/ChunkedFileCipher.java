@@ -0,0 +1,449 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 分块并行的大文件AES-GCM加解密<br>
+ *
+ * <p>文件格式：32字节文件头 + 若干密文块。文件头依次为魔数"LUCF"(4)、版本(1)、保留(3)、
+ * 块大小(4)、原文长度(8)、随机文件标识(8)、保留(4)；第i块为<code>密文 || tag(16)</code>，
+ * 除最后一块外原文长度都等于块大小，因此任意块在文件中的位置可以直接算出。
+ *
+ * <p>每块独立认证：nonce为文件标识(8) + 块序号(4)，整个文件头作为AAD，
+ * 因此块的篡改、换位、截断以及文件头的改动都会导致校验失败。
+ * 各块在{@link ForkJoinPool}上并行处理，通过{@link FileChannel}按位置读写；读写是阻塞I/O，默认使用专用线程池而不是公共池。
+ * 每个工作线程复用自己的Cipher与缓冲区；也可以只解密单个块或某个字节区间。
+ */
+public class ChunkedFileCipher {
+
+    /**
+     * 默认块大小
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * 文件头长度
+     */
+    public static final int HEADER_LENGTH = 32;
+
+    private static final int MAGIC = 0x4C554346;
+
+    private static final byte VERSION = 1;
+
+    private static final int TAG_LENGTH = AESGCMEngine.TAG_LENGTH;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKey           key;
+    private final int                 chunkSize;
+    private final ForkJoinPool        pool;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * 使用默认块大小与共享的专用线程池（线程数为CPU核数），不占用{@link ForkJoinPool#commonPool()}
+     *
+     * @param key 密钥原文，长度16、24或32字节
+     */
+    public ChunkedFileCipher(byte[] key) {
+        this(new SecretKeySpec(key, AESEngine.AES), DEFAULT_CHUNK_SIZE, DefaultPool.INSTANCE);
+    }
+
+    /**
+     * @param key       AES密钥
+     * @param chunkSize 加密时的块大小，解密时以文件头记录的为准
+     * @param pool      并行执行的线程池
+     */
+    public ChunkedFileCipher(SecretKey key, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE - TAG_LENGTH) {
+            throw new IllegalArgumentException("invalid chunk size " + chunkSize + ".");
+        }
+        this.key = key;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * 并行加密整个文件
+     *
+     * @param source 原文文件
+     * @param target 密文文件，已存在则覆盖；失败时删除
+     * @throws IOException     读写失败
+     * @throws CryptoException 加密失败或文件过大
+     */
+    public void encrypt(Path source, Path target) throws IOException, CryptoException {
+        try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ)) {
+            try (FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                byte[] fileId = new byte[8];
+                RANDOM.nextBytes(fileId);
+                Header header = new Header(chunkSize, src.size(), fileId);
+                writeFully(dst, ByteBuffer.wrap(header.bytes), 0);
+                run(new ChunkTask(header, src, dst, true, 0, header.chunkCount()));
+                dst.force(true);
+            } catch (IOException | CryptoException e) {
+                // 不保留截断的密文
+                Files.deleteIfExists(target);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 并行解密整个文件
+     *
+     * @param source 密文文件
+     * @param target 原文文件，已存在则覆盖；失败时删除
+     * @throws IOException     读写失败
+     * @throws CryptoException 格式错误或校验失败
+     */
+    public void decrypt(Path source, Path target) throws IOException, CryptoException {
+        try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ)) {
+            try (FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                Header header = readHeader(src);
+                if (src.size() != header.encryptedLength()) {
+                    throw new CryptoException("decrypt failed, file length mismatch.");
+                }
+                run(new ChunkTask(header, src, dst, false, 0, header.chunkCount()));
+            } catch (IOException | CryptoException e) {
+                // 不保留部分解密、未完整校验的结果
+                Files.deleteIfExists(target);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 读取原文长度
+     *
+     * @param src 密文文件通道
+     * @return 原文长度
+     * @throws IOException     读取失败
+     * @throws CryptoException 格式错误
+     */
+    public long plaintextLength(FileChannel src) throws IOException, CryptoException {
+        return readHeader(src).plaintextLength;
+    }
+
+    /**
+     * 解密单个块
+     *
+     * @param src   密文文件通道
+     * @param index 块序号，从0开始
+     * @return 该块原文
+     * @throws IOException     读取失败
+     * @throws CryptoException 格式错误、序号越界或校验失败
+     */
+    public byte[] decryptChunk(FileChannel src, long index) throws IOException, CryptoException {
+        Header header = readHeader(src);
+        if (index < 0 || index >= header.chunkCount()) {
+            throw new CryptoException("chunk index " + index + " out of range.");
+        }
+        Worker worker = workers.get();
+        int length = worker.decrypt(header, src, index);
+        byte[] out = new byte[length];
+        System.arraycopy(worker.plain, 0, out, 0, length);
+        return out;
+    }
+
+    /**
+     * 解密原文中的一个字节区间，只读取覆盖该区间的块
+     *
+     * @param src      密文文件通道
+     * @param position 原文起始位置
+     * @param length   长度
+     * @return 区间原文
+     * @throws IOException     读取失败
+     * @throws CryptoException 格式错误、区间越界或校验失败
+     */
+    public byte[] decryptRange(FileChannel src, long position, int length) throws IOException, CryptoException {
+        Header header = readHeader(src);
+        if (position < 0 || length < 0 || position + length > header.plaintextLength) {
+            throw new CryptoException("range [" + position + ", " + (position + length) + ") out of bounds.");
+        }
+        byte[] out = new byte[length];
+        Worker worker = workers.get();
+        int written = 0;
+        long index = position / header.chunkSize;
+        int skip = (int) (position % header.chunkSize);
+        while (written < length) {
+            int chunkLength = worker.decrypt(header, src, index++);
+            int n = Math.min(chunkLength - skip, length - written);
+            System.arraycopy(worker.plain, skip, out, written, n);
+            written += n;
+            skip = 0;
+        }
+        return out;
+    }
+
+    private void run(ChunkTask task) throws IOException, CryptoException {
+        try {
+            pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (ChunkCryptoException e) {
+            throw (CryptoException) e.getCause();
+        }
+    }
+
+    private static Header readHeader(FileChannel src) throws IOException, CryptoException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_LENGTH);
+        readFully(src, buf, 0);
+        Header header = Header.parse(buf.array());
+        if (header == null) {
+            throw new CryptoException("not a chunked cipher file.");
+        }
+        return header;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) {
+                throw new IOException("unexpected end of file.");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf, position + buf.position());
+        }
+    }
+
+    /**
+     * 文件头
+     */
+    private static final class Header {
+
+        private final byte[] bytes;
+        private final int    chunkSize;
+        private final long   plaintextLength;
+
+        Header(int chunkSize, long plaintextLength, byte[] fileId) {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_LENGTH);
+            buf.putInt(MAGIC).put(VERSION).put(new byte[3]).putInt(chunkSize).putLong(plaintextLength).put(fileId);
+            this.bytes = buf.array();
+            this.chunkSize = chunkSize;
+            this.plaintextLength = plaintextLength;
+        }
+
+        private Header(byte[] bytes, int chunkSize, long plaintextLength) {
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+            this.plaintextLength = plaintextLength;
+        }
+
+        static Header parse(byte[] bytes) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            if (buf.getInt() != MAGIC || buf.get() != VERSION) {
+                return null;
+            }
+            buf.position(8);
+            int chunkSize = buf.getInt();
+            long plaintextLength = buf.getLong();
+            if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE - TAG_LENGTH || plaintextLength < 0) {
+                return null;
+            }
+            return new Header(bytes, chunkSize, plaintextLength);
+        }
+
+        long chunkCount() {
+            // 空文件也保留一个空块，用来认证文件头
+            return Math.max(1, (plaintextLength + chunkSize - 1) / chunkSize);
+        }
+
+        int plainLength(long index) {
+            return (int) Math.min(chunkSize, plaintextLength - index * chunkSize);
+        }
+
+        long offset(long index) {
+            return HEADER_LENGTH + index * ((long) chunkSize + TAG_LENGTH);
+        }
+
+        long encryptedLength() {
+            return offset(chunkCount() - 1) + plainLength(chunkCount() - 1) + TAG_LENGTH;
+        }
+
+        void nonce(long index, byte[] nonce) throws CryptoException {
+            if (index > 0xFFFFFFFFL) {
+                throw new CryptoException("too many chunks.");
+            }
+            System.arraycopy(bytes, 20, nonce, 0, 8);
+            nonce[8] = (byte) (index >>> 24);
+            nonce[9] = (byte) (index >>> 16);
+            nonce[10] = (byte) (index >>> 8);
+            nonce[11] = (byte) index;
+        }
+    }
+
+    /**
+     * 工作线程私有的Cipher与缓冲区
+     */
+    private final class Worker {
+
+        private final byte[] nonce = new byte[AESGCMEngine.NONCE_LENGTH];
+        private Cipher       cipher;
+        private byte[]       plain  = new byte[0];
+        private byte[]       sealed = new byte[0];
+
+        int encrypt(Header header, FileChannel src, FileChannel dst, long index)
+                throws IOException, CryptoException {
+            int length = header.plainLength(index);
+            ensure(length);
+            readFully(src, ByteBuffer.wrap(plain, 0, length), index * header.chunkSize);
+            int n = seal(header, index, Cipher.ENCRYPT_MODE, plain, length, sealed);
+            writeFully(dst, ByteBuffer.wrap(sealed, 0, n), header.offset(index));
+            return n;
+        }
+
+        int decrypt(Header header, FileChannel src, long index) throws IOException, CryptoException {
+            int length = header.plainLength(index);
+            ensure(length);
+            readFully(src, ByteBuffer.wrap(sealed, 0, length + TAG_LENGTH), header.offset(index));
+            return seal(header, index, Cipher.DECRYPT_MODE, sealed, length + TAG_LENGTH, plain);
+        }
+
+        void decrypt(Header header, FileChannel src, FileChannel dst, long index)
+                throws IOException, CryptoException {
+            int n = decrypt(header, src, index);
+            writeFully(dst, ByteBuffer.wrap(plain, 0, n), index * header.chunkSize);
+        }
+
+        private int seal(Header header, long index, int mode, byte[] in, int length, byte[] out)
+                throws CryptoException {
+            try {
+                if (cipher == null) {
+                    cipher = Cipher.getInstance(AESGCMEngine.TRANSFORMATION);
+                }
+                header.nonce(index, nonce);
+                cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+                cipher.updateAAD(header.bytes);
+                return cipher.doFinal(in, 0, length, out, 0);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                cipher = null;
+                throw new CryptoException((mode == Cipher.ENCRYPT_MODE ? "encrypt" : "decrypt")
+                                          + " failed at chunk " + index + ".", e);
+            }
+        }
+
+        private void ensure(int length) {
+            if (sealed.length < length + TAG_LENGTH) {
+                plain = new byte[length];
+                sealed = new byte[length + TAG_LENGTH];
+            }
+        }
+    }
+
+    /**
+     * 二分拆分块区间的并行任务
+     */
+    private final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Header      header;
+        private final FileChannel src;
+        private final FileChannel dst;
+        private final boolean     encrypt;
+        private final long        from;
+        private final long        to;
+
+        ChunkTask(Header header, FileChannel src, FileChannel dst, boolean encrypt, long from, long to) {
+            this.header = header;
+            this.src = src;
+            this.dst = dst;
+            this.encrypt = encrypt;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(header, src, dst, encrypt, from, mid),
+                    new ChunkTask(header, src, dst, encrypt, mid, to));
+                return;
+            }
+            Worker worker = workers.get();
+            try {
+                if (encrypt) {
+                    worker.encrypt(header, src, dst, from);
+                } else {
+                    worker.decrypt(header, src, dst, from);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (CryptoException e) {
+                throw new ChunkCryptoException(e);
+            }
+        }
+    }
+
+    /**
+     * 在并行任务中传递{@link CryptoException}
+     */
+    private static final class ChunkCryptoException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ChunkCryptoException(CryptoException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * 默认构造使用的专用线程池，首次使用时创建；块处理是阻塞的文件I/O，不应占用公共池
+     */
+    private static final class DefaultPool {
+
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("loadup-chunked-cipher-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * 信封加密：数据用本地生成的数据密钥（DEK）做AES-GCM加密，DEK由{@link MasterKeyStore}中的主密钥以AESWrap包装后随密文保存<br>
+ *
+ * <p>密文格式为<code>格式(1) || 主密钥版本(4) || 包装长度(2) || 包装后的DEK || nonce || 密文 || tag</code>，
+ * 头部作为GCM的AAD参与认证。解密按头部中的主密钥版本解包，主密钥轮换后历史密文无需重新加密。
+ *
+ * <p>加密端在{@link #dataKeyTtlMillis}内复用同一个DEK，主密钥轮换后立即改用新DEK；
+ * 解密端把解包后的DEK按头部缓存在有上限、带过期时间的缓存中，同一DEK只解包一次。
+ */
+public class EnvelopeCipher {
+
+    /**
+     * 默认DEK有效期
+     */
+    public static final long DEFAULT_DATA_KEY_TTL_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * 默认缓存的DEK个数上限
+     */
+    public static final int DEFAULT_MAX_CACHED_KEYS = 1024;
+
+    /**
+     * 格式版本
+     */
+    static final byte FORMAT = 1;
+
+    /**
+     * 包装算法
+     */
+    static final String WRAP = "AESWrap";
+
+    /**
+     * 包装长度之前的头部长度
+     */
+    private static final int FIXED_HEADER_LENGTH = 7;
+
+    private final MasterKeyStore                     masterKeys;
+    private final long                               dataKeyTtlMillis;
+    private final ExpiringCache<ByteBuffer, DataKey> dataKeys;
+    private volatile DataKey                         current;
+
+    /**
+     * @param masterKeys 主密钥库
+     */
+    public EnvelopeCipher(MasterKeyStore masterKeys) {
+        this(masterKeys, DEFAULT_DATA_KEY_TTL_MILLIS, DEFAULT_MAX_CACHED_KEYS);
+    }
+
+    /**
+     * @param masterKeys       主密钥库
+     * @param dataKeyTtlMillis 加密端DEK的使用时长，以及解密端缓存的过期时间
+     * @param maxCachedKeys    解密端缓存的DEK个数上限
+     */
+    public EnvelopeCipher(MasterKeyStore masterKeys, long dataKeyTtlMillis, int maxCachedKeys) {
+        this.masterKeys = masterKeys;
+        this.dataKeyTtlMillis = dataKeyTtlMillis;
+        this.dataKeys = new ExpiringCache<>(maxCachedKeys, dataKeyTtlMillis);
+    }
+
+    /**
+     * 加密
+     *
+     * @param content 原文
+     * @return 信封密文
+     * @throws CryptoException
+     */
+    public byte[] encrypt(byte[] content) throws CryptoException {
+        DataKey key = currentDataKey();
+        byte[] out = new byte[key.header.length + AESGCMEngine.encryptedLength(content.length)];
+        System.arraycopy(key.header, 0, out, 0, key.header.length);
+        key.engine.encrypt(content, 0, content.length, key.header, out, key.header.length);
+        return out;
+    }
+
+    /**
+     * 解密
+     *
+     * @param content 信封密文
+     * @return 原文
+     * @throws CryptoException 格式错误、主密钥版本不存在或校验失败
+     */
+    public byte[] decrypt(byte[] content) throws CryptoException {
+        int headerLength = headerLength(content);
+        DataKey key = dataKeys.get(ByteBuffer.wrap(content, 0, headerLength));
+        if (key == null) {
+            key = unwrap(content, headerLength);
+        }
+        int length = content.length - headerLength;
+        if (length < AESGCMEngine.NONCE_LENGTH + AESGCMEngine.TAG_LENGTH) {
+            throw new CryptoException("decrypt failed, content too short.");
+        }
+        byte[] out = new byte[length - AESGCMEngine.NONCE_LENGTH - AESGCMEngine.TAG_LENGTH];
+        key.engine.decrypt(content, headerLength, length, key.header, out, 0);
+        return out;
+    }
+
+    /**
+     * 加密，utf-8字符集
+     *
+     * @param content 原文
+     * @return Base64编码的信封密文
+     * @throws CryptoException
+     */
+    public String encrypt(String content) throws CryptoException {
+        byte[] byteEnc = encrypt(content.getBytes(StandardCharsets.UTF_8));
+        return new String(Base64.encodeBase64(byteEnc), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 解密，utf-8字符集
+     *
+     * @param content Base64编码的信封密文
+     * @return 原文
+     * @throws CryptoException
+     */
+    public String decrypt(String content) throws CryptoException {
+        byte[] original = decrypt(Base64.decodeBase64(content.getBytes(StandardCharsets.US_ASCII)));
+        return new String(original, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取密文使用的主密钥版本
+     *
+     * @param content 信封密文
+     * @return 主密钥版本
+     * @throws CryptoException 格式错误
+     */
+    public static int masterVersionOf(byte[] content) throws CryptoException {
+        headerLength(content);
+        return ByteBuffer.wrap(content, 1, 4).getInt();
+    }
+
+    /**
+     * 使当前DEK与已缓存的DEK失效，下次加密生成新DEK
+     */
+    public void invalidate() {
+        current = null;
+        dataKeys.clear();
+    }
+
+    private DataKey currentDataKey() throws CryptoException {
+        DataKey key = current;
+        if (key == null || !key.usableFor(masterKeys.currentVersion())) {
+            synchronized (this) {
+                key = current;
+                if (key == null || !key.usableFor(masterKeys.currentVersion())) {
+                    key = newDataKey();
+                    current = key;
+                }
+            }
+        }
+        return key;
+    }
+
+    private DataKey newDataKey() throws CryptoException {
+        try {
+            int version = masterKeys.currentVersion();
+            KeyGenerator generator = KeyGenerator.getInstance(AESEngine.AES);
+            generator.init(MasterKeyStore.KEY_BITS);
+            SecretKey dek = generator.generateKey();
+
+            Cipher cipher = Cipher.getInstance(WRAP);
+            cipher.init(Cipher.WRAP_MODE, masterKeys.get(version));
+            byte[] wrapped = cipher.wrap(dek);
+
+            byte[] header = ByteBuffer.allocate(FIXED_HEADER_LENGTH + wrapped.length).put(FORMAT).putInt(version)
+                .putShort((short) wrapped.length).put(wrapped).array();
+            DataKey key = new DataKey(version, header, new AESGCMEngine(dek),
+                System.nanoTime() + dataKeyTtlMillis * 1_000_000L);
+            dataKeys.put(ByteBuffer.wrap(header), key);
+            return key;
+        } catch (CryptoException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("generate data key failed.", e);
+        }
+    }
+
+    private DataKey unwrap(byte[] content, int headerLength) throws CryptoException {
+        int version = ByteBuffer.wrap(content, 1, 4).getInt();
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP);
+            cipher.init(Cipher.UNWRAP_MODE, masterKeys.get(version));
+            byte[] wrapped = Arrays.copyOfRange(content, FIXED_HEADER_LENGTH, headerLength);
+            Key dek = cipher.unwrap(wrapped, AESEngine.AES, Cipher.SECRET_KEY);
+            byte[] header = Arrays.copyOf(content, headerLength);
+            DataKey key = new DataKey(version, header, new AESGCMEngine((SecretKey) dek), 0);
+            dataKeys.put(ByteBuffer.wrap(header), key);
+            return key;
+        } catch (CryptoException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("unwrap data key failed.", e);
+        }
+    }
+
+    private static int headerLength(byte[] content) throws CryptoException {
+        if (content.length < FIXED_HEADER_LENGTH || content[0] != FORMAT) {
+            throw new CryptoException("not an envelope ciphertext.");
+        }
+        int headerLength = FIXED_HEADER_LENGTH + (ByteBuffer.wrap(content, 5, 2).getShort() & 0xffff);
+        if (content.length < headerLength) {
+            throw new CryptoException("not an envelope ciphertext.");
+        }
+        return headerLength;
+    }
+
+    /**
+     * 解包后的数据密钥
+     */
+    private static final class DataKey {
+
+        private final int          masterVersion;
+        private final byte[]       header;
+        private final AESGCMEngine engine;
+        private final long         expireAt;
+
+        DataKey(int masterVersion, byte[] header, AESGCMEngine engine, long expireAt) {
+            this.masterVersion = masterVersion;
+            this.header = header;
+            this.engine = engine;
+            this.expireAt = expireAt;
+        }
+
+        boolean usableFor(int version) {
+            return masterVersion == version && System.nanoTime() - expireAt < 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 有上限且带过期时间的并发缓存，用于缓存解包后的数据密钥<br>
+ *
+ * <p>与{@link BoundedCache}相同，超过上限时随机淘汰；条目写入后经过<code>ttlMillis</code>失效，
+ * 读取到过期条目时顺带删除。
+ */
+final class ExpiringCache<K, V> {
+
+    private final int                        maxSize;
+    private final long                       ttlNanos;
+    private final ConcurrentMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+
+    ExpiringCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expireAt >= 0) {
+            map.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    void put(K key, V value) {
+        if (map.size() >= maxSize && !map.containsKey(key)) {
+            Iterator<K> it = map.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        map.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    void clear() {
+        map.clear();
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    private static final class Entry<V> {
+
+        private final V    value;
+        private final long expireAt;
+
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
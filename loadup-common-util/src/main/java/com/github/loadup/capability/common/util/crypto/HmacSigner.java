@@ -0,0 +1,283 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.loadup.capability.common.exception.AssertionException;
+import com.github.loadup.capability.common.resultcode.CommonResultCodeEnum;
+import java.security.GeneralSecurityException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * 绑定单个密钥的HMAC-SHA256签名与验签<br>
+ *
+ * <p>构造时初始化一个原型{@link Mac}，每个线程使用其克隆，热路径上没有provider查找与密钥调度。
+ * 字段签名按key升序拼接为<code>k1=v1&amp;k2=v2</code>（跳过值为null的字段），
+ * 以UTF-8编码分段写入Mac，不拼接中间字符串；签名比较为常量时间。
+ *
+ * <p>key与value中的<code>%</code>、<code>&amp;</code>、<code>=</code>分别编码为<code>%25</code>、<code>%26</code>、
+ * <code>%3D</code>，否则<code>{a: "1&amp;b=2"}</code>与<code>{a: "1", b: "2"}</code>会得到相同的待签名字节，
+ * 可以在不破坏签名的情况下移动字段边界。不含这三个字符的字段与常见网关的原样拼接格式一致；
+ * 含这些字符时，对端须按相同规则编码后才能互通。
+ */
+public class HmacSigner {
+
+    /**
+     * 算法
+     */
+    static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * 签名长度
+     */
+    public static final int SIGNATURE_LENGTH = 32;
+
+    private static final int MAX_CACHED_KEYS = 1024;
+
+    private static final byte[] HEX_UPPER = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final BoundedCache<String, HmacSigner> SIGNERS = new BoundedCache<>(MAX_CACHED_KEYS);
+
+    private final SecretKeySpec        key;
+    private final Mac                  prototype;
+    private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
+    /**
+     * @param key 密钥原文
+     * @throws IllegalArgumentException 密钥非法
+     */
+    public HmacSigner(byte[] key) {
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(this.key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("invalid hmac key.", e);
+        }
+    }
+
+    /**
+     * 获取Base64密钥对应的签名器，同一密钥返回同一实例
+     *
+     * @param base64Key Base64编码的密钥
+     * @return 签名器
+     */
+    public static HmacSigner of(String base64Key) {
+        return SIGNERS.get(base64Key, k -> new HmacSigner(Base64.decodeBase64(k.getBytes())));
+    }
+
+    /**
+     * 签名
+     *
+     * @param data 数据
+     * @return 签名
+     */
+    public byte[] sign(byte[] data) {
+        Mac mac = contexts.get().mac;
+        return mac.doFinal(data);
+    }
+
+    /**
+     * 按字段签名
+     *
+     * @param fields 待签名字段
+     * @return 签名
+     */
+    public byte[] sign(Map<String, ?> fields) {
+        Context context = contexts.get();
+        try {
+            context.canonicalize(fields);
+        } catch (RuntimeException e) {
+            // 字段toString失败等情况下丢弃已写入的部分数据，避免污染下一次签名
+            context.reset();
+            throw e;
+        }
+        return context.mac.doFinal();
+    }
+
+    /**
+     * 按字段签名
+     *
+     * @param fields 待签名字段
+     * @return 小写十六进制签名
+     */
+    public String signHex(Map<String, ?> fields) {
+        return Hex.encodeHexString(sign(fields));
+    }
+
+    /**
+     * 验签
+     *
+     * @param data      数据
+     * @param signature 待校验的签名
+     * @return 是否一致
+     */
+    public boolean verify(byte[] data, byte[] signature) {
+        return MessageDigest.isEqual(sign(data), signature);
+    }
+
+    /**
+     * 按字段验签
+     *
+     * @param fields    待签名字段，不应包含签名字段本身
+     * @param signature 待校验的签名
+     * @return 是否一致
+     */
+    public boolean verify(Map<String, ?> fields, byte[] signature) {
+        return MessageDigest.isEqual(sign(fields), signature);
+    }
+
+    /**
+     * 按字段验签
+     *
+     * @param fields       待签名字段，不应包含签名字段本身
+     * @param hexSignature 十六进制签名，大小写不敏感
+     * @return 是否一致，签名格式非法时返回false
+     */
+    public boolean verifyHex(Map<String, ?> fields, String hexSignature) {
+        if (hexSignature == null || hexSignature.length() != SIGNATURE_LENGTH * 2) {
+            return false;
+        }
+        try {
+            return verify(fields, Hex.decodeHex(hexSignature));
+        } catch (DecoderException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 按字段验签，不一致时抛出{@link CommonResultCodeEnum#INVALID_SIGNATURE}
+     *
+     * @param fields       待签名字段，不应包含签名字段本身
+     * @param hexSignature 十六进制签名
+     * @throws AssertionException 签名不一致
+     */
+    public void checkHex(Map<String, ?> fields, String hexSignature) {
+        if (!verifyHex(fields, hexSignature)) {
+            throw new AssertionException(CommonResultCodeEnum.INVALID_SIGNATURE);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                Mac mac = Mac.getInstance(prototype.getAlgorithm(), prototype.getProvider());
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("clone mac failed.", ex);
+            }
+        }
+    }
+
+    /**
+     * 线程私有的Mac与UTF-8编码缓冲区
+     */
+    private final class Context {
+
+        private final Mac    mac    = newMac();
+        private final byte[] buffer = new byte[256];
+        private int          length;
+
+        void canonicalize(Map<String, ?> fields) {
+            SortedMap<String, ?> sorted = fields instanceof SortedMap
+                                          && ((SortedMap<String, ?>) fields).comparator() == null
+                ? (SortedMap<String, ?>) fields : new TreeMap<>(fields);
+            boolean first = true;
+            for (Map.Entry<String, ?> entry : sorted.entrySet()) {
+                Object value = entry.getValue();
+                if (value == null) {
+                    continue;
+                }
+                if (!first) {
+                    put((byte) '&');
+                }
+                first = false;
+                append(entry.getKey());
+                put((byte) '=');
+                append(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+            }
+            flush();
+        }
+
+        private void append(CharSequence s) {
+            for (int i = 0, n = s.length(); i < n; i++) {
+                char c = s.charAt(i);
+                if (c == '%' || c == '&' || c == '=') {
+                    put((byte) '%');
+                    put(HEX_UPPER[c >> 4]);
+                    put(HEX_UPPER[c & 0xF]);
+                } else if (c < 0x80) {
+                    put((byte) c);
+                } else if (c < 0x800) {
+                    put((byte) (0xC0 | c >> 6));
+                    put((byte) (0x80 | c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    put((byte) (0xF0 | cp >> 18));
+                    put((byte) (0x80 | cp >> 12 & 0x3F));
+                    put((byte) (0x80 | cp >> 6 & 0x3F));
+                    put((byte) (0x80 | cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // 与String.getBytes(UTF_8)一致，孤立代理项编码为'?'
+                    put((byte) '?');
+                } else {
+                    put((byte) (0xE0 | c >> 12));
+                    put((byte) (0x80 | c >> 6 & 0x3F));
+                    put((byte) (0x80 | c & 0x3F));
+                }
+            }
+        }
+
+        void reset() {
+            mac.reset();
+            length = 0;
+        }
+
+        private void put(byte b) {
+            if (length == buffer.length) {
+                flush();
+            }
+            buffer[length++] = b;
+        }
+
+        private void flush() {
+            mac.update(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
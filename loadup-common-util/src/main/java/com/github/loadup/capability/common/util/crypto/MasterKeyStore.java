@@ -0,0 +1,173 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * 本地主密钥库：在PKCS12文件中按版本保存主密钥（别名<code>master-{version}</code>）<br>
+ *
+ * <p>版本号最大的为当前主密钥，{@link #rotate()}生成新版本并原子替换文件，旧版本保留用于解密历史数据。
+ * 文件不存在时自动创建并生成版本1。加载后密钥常驻内存，读取无锁。
+ */
+public class MasterKeyStore {
+
+    /**
+     * 密钥库类型
+     */
+    static final String KEYSTORE_TYPE = "PKCS12";
+
+    /**
+     * 别名前缀
+     */
+    static final String ALIAS_PREFIX = "master-";
+
+    /**
+     * 主密钥长度（位）
+     */
+    static final int KEY_BITS = 256;
+
+    private final Path                       file;
+    private final char[]                     password;
+    private volatile Map<Integer, SecretKey> keys;
+    private volatile int                     currentVersion;
+
+    /**
+     * @param file     密钥库文件
+     * @param password 密钥库及条目口令
+     * @throws IOException     读写失败
+     * @throws CryptoException 密钥库格式或口令错误
+     */
+    public MasterKeyStore(Path file, char[] password) throws IOException, CryptoException {
+        this.file = file;
+        this.password = password.clone();
+        try {
+            KeyStore store = KeyStore.getInstance(KEYSTORE_TYPE);
+            if (Files.exists(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    store.load(in, this.password);
+                }
+            } else {
+                store.load(null, this.password);
+            }
+            Map<Integer, SecretKey> loaded = new HashMap<>();
+            int max = 0;
+            for (Enumeration<String> aliases = store.aliases(); aliases.hasMoreElements(); ) {
+                String alias = aliases.nextElement();
+                if (!alias.startsWith(ALIAS_PREFIX)) {
+                    continue;
+                }
+                int version = Integer.parseInt(alias.substring(ALIAS_PREFIX.length()));
+                loaded.put(version, (SecretKey) store.getKey(alias, this.password));
+                max = Math.max(max, version);
+            }
+            this.keys = Collections.unmodifiableMap(loaded);
+            this.currentVersion = max;
+        } catch (GeneralSecurityException | NumberFormatException | ClassCastException e) {
+            throw new CryptoException("load master key store failed.", e);
+        }
+        if (currentVersion == 0) {
+            rotate();
+        }
+    }
+
+    /**
+     * @return 当前主密钥版本
+     */
+    public int currentVersion() {
+        return currentVersion;
+    }
+
+    /**
+     * 获取指定版本的主密钥
+     *
+     * @param version 版本
+     * @return 主密钥
+     * @throws CryptoException 版本不存在
+     */
+    public SecretKey get(int version) throws CryptoException {
+        SecretKey key = keys.get(version);
+        if (key == null) {
+            throw new CryptoException("master key version " + version + " not found.");
+        }
+        return key;
+    }
+
+    /**
+     * 生成新版本主密钥并持久化，之后的加密使用新版本
+     *
+     * @return 新版本号
+     * @throws IOException     写入失败
+     * @throws CryptoException 生成或保存失败
+     */
+    public synchronized int rotate() throws IOException, CryptoException {
+        int version = currentVersion + 1;
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance(AESEngine.AES);
+            generator.init(KEY_BITS);
+            Map<Integer, SecretKey> next = new HashMap<>(keys);
+            next.put(version, generator.generateKey());
+
+            KeyStore store = KeyStore.getInstance(KEYSTORE_TYPE);
+            store.load(null, password);
+            KeyStore.ProtectionParameter protection = new KeyStore.PasswordProtection(password);
+            for (Map.Entry<Integer, SecretKey> entry : next.entrySet()) {
+                store.setEntry(ALIAS_PREFIX + entry.getKey(), new KeyStore.SecretKeyEntry(entry.getValue()),
+                    protection);
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                store.store(out, password);
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            keys = Collections.unmodifiableMap(next);
+            currentVersion = version;
+            return version;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("rotate master key failed.", e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.github.loadup.capability.common.util.crypto;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.loadup.capability.common.exception.AssertionException;
+import com.github.loadup.capability.common.resultcode.CommonResultCodeEnum;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * 按密钥ID缓存公钥的RSA/ECDSA验签器，用于校验合作方回调<br>
+ *
+ * <p>公钥在{@link #register(String, String)}时解析一次；每个密钥为每个线程缓存一个已
+ * {@link Signature#initVerify(PublicKey)}的实例，{@link Signature#verify(byte[])}之后自动回到初始化状态，
+ * 热路径上没有PEM解析、provider查找与初始化。
+ */
+public class SignatureVerifier {
+
+    /**
+     * RSA默认签名算法
+     */
+    public static final String SHA256_WITH_RSA = "SHA256withRSA";
+
+    /**
+     * ECDSA默认签名算法
+     */
+    public static final String SHA256_WITH_ECDSA = "SHA256withECDSA";
+
+    private final ConcurrentMap<String, VerifyKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * 注册公钥，签名算法按密钥类型取{@link #SHA256_WITH_RSA}或{@link #SHA256_WITH_ECDSA}；同一ID重复注册时覆盖
+     *
+     * @param keyId 密钥ID
+     * @param pem   X.509（SubjectPublicKeyInfo）格式的PEM公钥，也可以是去掉首尾行的Base64
+     * @throws CryptoException 公钥格式错误
+     */
+    public void register(String keyId, String pem) throws CryptoException {
+        PublicKey publicKey = parsePublicKey(pem);
+        String algorithm = "EC".equals(publicKey.getAlgorithm()) ? SHA256_WITH_ECDSA : SHA256_WITH_RSA;
+        register(keyId, publicKey, algorithm);
+    }
+
+    /**
+     * 注册公钥；同一ID重复注册时覆盖
+     *
+     * @param keyId     密钥ID
+     * @param publicKey 公钥
+     * @param algorithm 签名算法，如SHA256withRSA
+     * @throws CryptoException 算法不可用或与公钥不匹配
+     */
+    public void register(String keyId, PublicKey publicKey, String algorithm) throws CryptoException {
+        VerifyKey key = new VerifyKey(publicKey, algorithm);
+        try {
+            // 提前校验算法与公钥，避免错误延迟到请求线程
+            key.signature();
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("register key " + keyId + " failed.", e);
+        }
+        keys.put(keyId, key);
+    }
+
+    /**
+     * 移除公钥
+     *
+     * @param keyId 密钥ID
+     */
+    public void unregister(String keyId) {
+        keys.remove(keyId);
+    }
+
+    /**
+     * 验签
+     *
+     * @param keyId     密钥ID
+     * @param data      数据
+     * @param signature 签名
+     * @return 是否通过，签名格式非法时返回false
+     * @throws CryptoException 密钥ID未注册或参数非法
+     */
+    public boolean verify(String keyId, byte[] data, byte[] signature) throws CryptoException {
+        return key(keyId).verify(data, signature);
+    }
+
+    /**
+     * 验签
+     *
+     * @param keyId           密钥ID
+     * @param content         utf-8编码的数据
+     * @param base64Signature Base64编码的签名
+     * @return 是否通过
+     * @throws CryptoException 密钥ID未注册或参数非法
+     */
+    public boolean verify(String keyId, String content, String base64Signature) throws CryptoException {
+        return verify(keyId, content.getBytes(StandardCharsets.UTF_8), Base64.decodeBase64(base64Signature));
+    }
+
+    /**
+     * 验签，不通过时抛出{@link CommonResultCodeEnum#INVALID_SIGNATURE}
+     *
+     * @param keyId     密钥ID
+     * @param data      数据
+     * @param signature 签名
+     * @throws CryptoException    密钥ID未注册或参数非法
+     * @throws AssertionException 签名不通过
+     */
+    public void check(String keyId, byte[] data, byte[] signature) throws CryptoException {
+        if (!verify(keyId, data, signature)) {
+            throw new AssertionException(CommonResultCodeEnum.INVALID_SIGNATURE);
+        }
+    }
+
+    /**
+     * 批量验签，同一密钥只查找一次
+     *
+     * @param keyId      密钥ID
+     * @param data       数据列表
+     * @param signatures 与数据一一对应的签名列表
+     * @return 与输入顺序一致的结果
+     * @throws CryptoException 密钥ID未注册或参数非法
+     */
+    public boolean[] verifyAll(String keyId, List<byte[]> data, List<byte[]> signatures) throws CryptoException {
+        if (data.size() != signatures.size()) {
+            throw new IllegalArgumentException("data and signatures size mismatch.");
+        }
+        VerifyKey key = key(keyId);
+        boolean[] result = new boolean[data.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = key.verify(data.get(i), signatures.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 解析PEM公钥
+     *
+     * @param pem X.509格式的PEM公钥，也可以是去掉首尾行的Base64
+     * @return 公钥，RSA或EC
+     * @throws CryptoException 格式错误
+     */
+    public static PublicKey parsePublicKey(String pem) throws CryptoException {
+        String body = pem.replaceAll("-----[A-Z ]+-----", "");
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.decodeBase64(body));
+        GeneralSecurityException failure = null;
+        for (String type : new String[] {"RSA", "EC"}) {
+            try {
+                return KeyFactory.getInstance(type).generatePublic(spec);
+            } catch (GeneralSecurityException e) {
+                failure = e;
+            }
+        }
+        throw new CryptoException("parse public key failed.", failure);
+    }
+
+    private VerifyKey key(String keyId) throws CryptoException {
+        VerifyKey key = keys.get(keyId);
+        if (key == null) {
+            throw new CryptoException("key " + keyId + " not registered.");
+        }
+        return key;
+    }
+
+    /**
+     * 公钥及其线程私有的Signature
+     */
+    private static final class VerifyKey {
+
+        private final PublicKey              publicKey;
+        private final String                 algorithm;
+        private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
+
+        VerifyKey(PublicKey publicKey, String algorithm) {
+            this.publicKey = publicKey;
+            this.algorithm = algorithm;
+        }
+
+        Signature signature() throws GeneralSecurityException {
+            Signature signature = signatures.get();
+            if (signature == null) {
+                signature = Signature.getInstance(algorithm);
+                signature.initVerify(publicKey);
+                signatures.set(signature);
+            }
+            return signature;
+        }
+
+        boolean verify(byte[] data, byte[] sig) throws CryptoException {
+            Signature signature;
+            try {
+                signature = signature();
+            } catch (GeneralSecurityException e) {
+                throw new CryptoException("init signature failed.", e);
+            }
+            try {
+                signature.update(data);
+                return signature.verify(sig);
+            } catch (SignatureException e) {
+                // 签名格式非法；实例状态不确定，丢弃后重新初始化
+                signatures.remove();
+                return false;
+            } catch (RuntimeException e) {
+                // 参数为null等调用错误不能当作验签不通过
+                signatures.remove();
+                throw new CryptoException("verify failed.", e);
+            }
+        }
+    }
+}
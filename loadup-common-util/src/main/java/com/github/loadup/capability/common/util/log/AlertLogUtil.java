@@ -33,7 +33,11 @@ import org.slf4j.LoggerFactory;
  * 报警日志，不需要输出整个异常堆栈，通常是以摘要或者概要的信息描述出现<br>
  * 具备一定的结构化规则，能够通过monitor完成日志解析，实现邮件或者短信方式报警<br>
  *
- * 结构化规则要求：1 不能使用换行，保证一行日志就是一次报警
+ * 结构化规则要求：1 不能使用换行，保证一行日志就是一次报警<br>
+ *
+ * 开启{@link AsyncLogDispatcher}后改为异步输出，调用线程不再等待appender的I/O<br>
+ *
+ * 开启{@link AlertRateLimiter}后，带messageName的报警按标题限流、去重，被抑制的条数定期汇总输出
  */
 public final class AlertLogUtil {
 
@@ -56,7 +60,9 @@ public final class AlertLogUtil {
      * @param message 报警日志上下文信息描述，尽量带上业务特征
      */
     public static void alert(Object... message) {
-        LogUtils.error(logger, message);
+        if (logger.isErrorEnabled()) {
+            AsyncLogDispatcher.error(logger, LogUtils.getLogString(message), null);
+        }
     }
 
     /**
@@ -67,7 +73,12 @@ public final class AlertLogUtil {
      * @param message     报警日志上下文信息描述，尽量带上业务特征
      */
     public static void alert(String messageName, Object... message) {
-        LogUtils.error(messageName, logger, message);
+        if (logger.isErrorEnabled()) {
+            String log = limit(messageName, message);
+            if (log != null) {
+                AsyncLogDispatcher.error(logger, log, null);
+            }
+        }
     }
 
     /**
@@ -79,8 +90,9 @@ public final class AlertLogUtil {
      * @param message 报警日志上下文信息描述，尽量带上业务特征
      */
     public static void error(Object... message) {
-        alert(message);
-        ExceptionLogUtils.error(message);
+        if (isEnabled()) {
+            fanOut(LogUtils.getLogString(message), null);
+        }
     }
 
     /**
@@ -93,8 +105,9 @@ public final class AlertLogUtil {
      * @param message 报警日志上下文信息描述，尽量带上业务特征
      */
     public static void error(Throwable e, Object... message) {
-        alert(message);
-        ExceptionLogUtils.error(e, message);
+        if (isEnabled()) {
+            fanOut(LogUtils.getLogString(message), e);
+        }
     }
 
     /**
@@ -108,8 +121,58 @@ public final class AlertLogUtil {
      * @param message     报警日志上下文信息描述，尽量带上业务特征
      */
     public static void error(String messageName, Object... message) {
-        alert(messageName, message);
-        ExceptionLogUtils.error(messageName, message);
+        if (isEnabled()) {
+            String log = limit(messageName, message);
+            if (log != null) {
+                fanOut(log, null);
+            }
+        }
+    }
+
+    /**
+     * 输出被抑制条数的汇总
+     * <p>输出格式：  <code>[messageName]N suppressed in last Ms</code>
+     *
+     * @param messageName    报警日志的标题
+     * @param count          被抑制的条数
+     * @param intervalMillis 汇总周期
+     */
+    static void summarize(String messageName, long count, long intervalMillis) {
+        if (logger.isErrorEnabled()) {
+            AsyncLogDispatcher.error(logger, LogUtils.getLogString(messageName, count, " suppressed in last ",
+                intervalMillis / 1000, "s"), null);
+        }
+    }
+
+    /**
+     * 按messageName限流与去重，先判断令牌桶，放行后才格式化
+     *
+     * @return 格式化后的日志，被抑制时返回null
+     */
+    private static String limit(String messageName, Object[] message) {
+        AlertRateLimiter limiter = AlertRateLimiter.shared();
+        if (limiter == null) {
+            return LogUtils.getLogString(messageName, message);
+        }
+        if (!limiter.tryAcquire(messageName)) {
+            return null;
+        }
+        String log = LogUtils.getLogString(messageName, message);
+        return limiter.isDuplicate(messageName, log) ? null : log;
+    }
+
+    private static boolean isEnabled() {
+        return logger.isErrorEnabled() || ExceptionLogUtils.isEnabled();
+    }
+
+    /**
+     * 同一条日志只格式化一次，报警日志不带异常堆栈，错误日志带异常堆栈
+     */
+    private static void fanOut(String log, Throwable e) {
+        if (logger.isErrorEnabled()) {
+            AsyncLogDispatcher.error(logger, log, null);
+        }
+        ExceptionLogUtils.write(log, e);
     }
 
 }
@@ -0,0 +1,382 @@
+package com.github.loadup.capability.common.util.log;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 报警日志按messageName限流与去重<br>
+ *
+ * <p>每个messageName一个GCRA令牌桶：只用一个{@link AtomicLong}保存理论到达时间，CAS推进，无锁；
+ * 放行后再按日志内容（不含traceId前缀）去重，窗口内重复的内容被抑制。
+ * 去重表按哈希直接映射、容量固定，每个槽位把24位指纹与40位过期时间打包在一个long中CAS更新，
+ * 并发的相同内容只放行一条；冲突时旧记录被覆盖，通常只会少去重，
+ * 但不同内容落在同一槽位且指纹相同时（约十亿分之一）也会被当作重复抑制。
+ * 被抑制的条数按messageName累计，由后台线程定期以"N suppressed"汇总输出。
+ *
+ * <p>单独限流的messageName最多{@value #MAX_KEYS}个，达到上限时先移除空闲项，仍不足时淘汰最久未放行的一项，
+ * 被淘汰项未汇总的抑制条数并入{@value #EVICTED_KEY}输出；messageName中带动态内容时会频繁淘汰，应改为固定标题。
+ *
+ * <p>共享实例默认关闭，通过系统属性<code>loadup.log.alert.limit.enabled=true</code>开启，
+ * 开启后超出速率或重复的报警不再逐条输出。
+ */
+public final class AlertRateLimiter {
+
+    /**
+     * 是否开启共享实例，默认关闭
+     */
+    public static final String PROP_ENABLED                 = "loadup.log.alert.limit.enabled";
+
+    /**
+     * 每个messageName每秒放行条数
+     */
+    public static final String PROP_RATE_PER_SECOND         = "loadup.log.alert.limit.ratePerSecond";
+
+    /**
+     * 允许的突发条数
+     */
+    public static final String PROP_BURST                   = "loadup.log.alert.limit.burst";
+
+    /**
+     * 去重窗口毫秒数，0表示不去重
+     */
+    public static final String PROP_DEDUP_WINDOW_MILLIS     = "loadup.log.alert.limit.dedupWindowMillis";
+
+    /**
+     * 汇总输出间隔毫秒数
+     */
+    public static final String PROP_SUMMARY_INTERVAL_MILLIS = "loadup.log.alert.limit.summaryIntervalMillis";
+
+    /**
+     * 单独限流的messageName个数上限，超出时淘汰
+     */
+    private static final int MAX_KEYS = 1024;
+
+    /**
+     * 被淘汰的messageName汇总输出时使用的标题
+     */
+    private static final String EVICTED_KEY = "__evicted__";
+
+    /**
+     * messageName为null时使用的键，与日志中null标题的输出一致
+     */
+    private static final String NULL_KEY = "null";
+
+    /**
+     * 每个messageName的去重表大小，2的幂
+     */
+    private static final int DEDUP_SLOTS = 64;
+
+    /**
+     * 去重槽位中过期时间所占的低位数，单位毫秒，约34年不回绕
+     */
+    private static final int  EXPIRE_BITS = 40;
+
+    private static final long EXPIRE_MASK = (1L << EXPIRE_BITS) - 1;
+
+    private final long                            intervalNanos;
+    private final long                            burstNanos;
+    private final long                            dedupWindowMillis;
+    private final long                            dedupWindowNanos;
+    private final long                            idleNanos;
+    private final long                            originNanos = System.nanoTime();
+    private final ConcurrentMap<String, KeyState> states      = new ConcurrentHashMap<>();
+    private final LongAdder                       evicted     = new LongAdder();
+    private final Object                          evictLock   = new Object();
+
+    /**
+     * @param ratePerSecond     每个messageName每秒放行条数，有限正数
+     * @param burst             允许的突发条数
+     * @param dedupWindowMillis 去重窗口毫秒数，0表示不去重
+     */
+    public AlertRateLimiter(double ratePerSecond, int burst, long dedupWindowMillis) {
+        if (!isValidRate(ratePerSecond) || burst < 1 || dedupWindowMillis < 0) {
+            throw new IllegalArgumentException(
+                "ratePerSecond must be finite and > 0, burst >= 1 and dedupWindowMillis >= 0");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.dedupWindowMillis = dedupWindowMillis;
+        this.dedupWindowNanos = TimeUnit.MILLISECONDS.toNanos(dedupWindowMillis);
+        this.idleNanos = Math.max(burstNanos, dedupWindowNanos);
+    }
+
+    /**
+     * @return 共享实例，未通过系统属性开启时返回null
+     */
+    public static AlertRateLimiter shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 令牌桶判断，放行前不需要格式化日志
+     *
+     * @param messageName 报警标题，可为null
+     * @return 是否放行；不放行时计入抑制条数
+     */
+    public boolean tryAcquire(String messageName) {
+        KeyState state = state(messageName);
+        long now = System.nanoTime();
+        AtomicLong tat = state.tat;
+        while (true) {
+            long current = tat.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            if (next - now > burstNanos) {
+                state.suppressed.increment();
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 去重判断
+     *
+     * @param messageName 报警标题，可为null
+     * @param log         格式化后的日志，首个']'之前的traceId前缀不参与比较
+     * @return 窗口内是否已出现过相同内容；重复时计入抑制条数
+     */
+    public boolean isDuplicate(String messageName, String log) {
+        if (dedupWindowNanos <= 0) {
+            return false;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = log.indexOf(']') + 1, n = log.length(); i < n; i++) {
+            hash = (hash ^ log.charAt(i)) * 0x100000001b3L;
+        }
+        KeyState state = state(messageName);
+        int index = (int) hash & (DEDUP_SLOTS - 1);
+        long fingerprint = hash >>> EXPIRE_BITS;
+        long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+        long update = fingerprint << EXPIRE_BITS | ((now + dedupWindowMillis) & EXPIRE_MASK);
+        while (true) {
+            long current = state.dedup.get(index);
+            if (current >>> EXPIRE_BITS == fingerprint && (current & EXPIRE_MASK) > now) {
+                state.suppressed.increment();
+                return true;
+            }
+            if (state.dedup.compareAndSet(index, current, update)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @param messageName 报警标题，可为null
+     * @return 上次汇总以来被抑制的条数
+     */
+    public long getSuppressedCount(String messageName) {
+        KeyState state = states.get(key(messageName));
+        return state == null ? 0 : state.suppressed.sum();
+    }
+
+    /**
+     * 取出并清零各messageName被抑制的条数，回调只收到大于0的项
+     *
+     * @param consumer 回调：messageName与抑制条数
+     */
+    public void drainSuppressed(BiConsumer<String, Long> consumer) {
+        long now = System.nanoTime();
+        for (Map.Entry<String, KeyState> entry : states.entrySet()) {
+            KeyState state = entry.getValue();
+            long count = state.suppressed.sumThenReset();
+            if (count > 0) {
+                consumer.accept(entry.getKey(), count);
+            } else if (isIdle(state, now) && state.suppressed.sum() == 0) {
+                // 只在仍是同一对象时移除；并发取到旧对象的调用面对的是满令牌桶与已过期的去重表，不会再计入抑制
+                states.remove(entry.getKey(), state);
+            }
+        }
+        long count = evicted.sumThenReset();
+        if (count > 0) {
+            consumer.accept(EVICTED_KEY, count);
+        }
+    }
+
+    private KeyState state(String messageName) {
+        String key = key(messageName);
+        KeyState state = states.get(key);
+        if (state != null) {
+            return state;
+        }
+        if (states.size() >= MAX_KEYS) {
+            evict(System.nanoTime());
+        }
+        return states.computeIfAbsent(key, k -> new KeyState());
+    }
+
+    private static String key(String messageName) {
+        return messageName == null ? NULL_KEY : messageName;
+    }
+
+    private static boolean isValidRate(double ratePerSecond) {
+        return ratePerSecond > 0 && !Double.isInfinite(ratePerSecond);
+    }
+
+    /**
+     * 先移除全部空闲项，没有空闲项时淘汰令牌桶时间最早（最久未放行）的一项
+     */
+    private void evict(long now) {
+        synchronized (evictLock) {
+            if (states.size() < MAX_KEYS) {
+                return;
+            }
+            Map.Entry<String, KeyState> oldest = null;
+            for (Map.Entry<String, KeyState> entry : states.entrySet()) {
+                KeyState state = entry.getValue();
+                if (isIdle(state, now)) {
+                    remove(entry.getKey(), state);
+                } else if (oldest == null || state.tat.get() - oldest.getValue().tat.get() < 0) {
+                    oldest = entry;
+                }
+            }
+            if (states.size() >= MAX_KEYS && oldest != null) {
+                remove(oldest.getKey(), oldest.getValue());
+            }
+        }
+    }
+
+    /**
+     * 令牌已回满且去重记录均已过期：去重记录只在放行后写入，时间早于令牌桶时间
+     */
+    private boolean isIdle(KeyState state, long now) {
+        return now - state.tat.get() > idleNanos;
+    }
+
+    private void remove(String messageName, KeyState state) {
+        if (states.remove(messageName, state)) {
+            evicted.add(state.suppressed.sumThenReset());
+        }
+    }
+
+    /**
+     * 单个messageName的令牌桶、去重表与抑制计数
+     */
+    private static final class KeyState {
+
+        private final AtomicLong      tat        = new AtomicLong(System.nanoTime());
+        private final AtomicLongArray dedup      = new AtomicLongArray(DEDUP_SLOTS);
+        private final LongAdder       suppressed = new LongAdder();
+    }
+
+    /**
+     * 共享实例，首次使用时按系统属性创建并启动汇总线程；属性非法时告警并使用默认值，
+     * 创建失败时告警并关闭限流，不能让初始化异常传到{@link AlertLogUtil}
+     */
+    private static final class Holder {
+
+        private static final double DEFAULT_RATE_PER_SECOND         = 10;
+
+        private static final int    DEFAULT_BURST                   = 20;
+
+        private static final long   DEFAULT_DEDUP_WINDOW_MILLIS     = 10_000L;
+
+        private static final long   DEFAULT_SUMMARY_INTERVAL_MILLIS = 60_000L;
+
+        private static final AlertRateLimiter INSTANCE = create();
+
+        private static AlertRateLimiter create() {
+            Logger log = LoggerFactory.getLogger(AlertRateLimiter.class);
+            try {
+                if (!Boolean.getBoolean(PROP_ENABLED)) {
+                    return null;
+                }
+                AlertRateLimiter limiter = new AlertRateLimiter(ratePerSecond(log),
+                    (int) positive(log, PROP_BURST, Integer.getInteger(PROP_BURST, DEFAULT_BURST), DEFAULT_BURST),
+                    dedupWindowMillis(log));
+                long interval = positive(log, PROP_SUMMARY_INTERVAL_MILLIS,
+                    Long.getLong(PROP_SUMMARY_INTERVAL_MILLIS, DEFAULT_SUMMARY_INTERVAL_MILLIS),
+                    DEFAULT_SUMMARY_INTERVAL_MILLIS);
+                ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "loadup-alert-summary");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                scheduler.scheduleWithFixedDelay(() -> {
+                    try {
+                        limiter.drainSuppressed((name, count) -> AlertLogUtil.summarize(name, count, interval));
+                    } catch (RuntimeException ignore) {
+                        // 汇总失败不能终止定时任务
+                    }
+                }, interval, interval, TimeUnit.MILLISECONDS);
+                return limiter;
+            } catch (RuntimeException e) {
+                log.warn("[AlertRateLimiter] create shared limiter failed, alert rate limiting disabled", e);
+                return null;
+            }
+        }
+
+        private static double ratePerSecond(Logger log) {
+            String value = System.getProperty(PROP_RATE_PER_SECOND);
+            if (value == null) {
+                return DEFAULT_RATE_PER_SECOND;
+            }
+            try {
+                double rate = Double.parseDouble(value.trim());
+                if (isValidRate(rate)) {
+                    return rate;
+                }
+            } catch (NumberFormatException ignore) {
+                // 按非法值处理
+            }
+            log.warn("[AlertRateLimiter] invalid {}={}, must be a finite positive number, use {}",
+                PROP_RATE_PER_SECOND, value, DEFAULT_RATE_PER_SECOND);
+            return DEFAULT_RATE_PER_SECOND;
+        }
+
+        private static long dedupWindowMillis(Logger log) {
+            long window = Long.getLong(PROP_DEDUP_WINDOW_MILLIS, DEFAULT_DEDUP_WINDOW_MILLIS);
+            if (window < 0) {
+                log.warn("[AlertRateLimiter] invalid {}={}, must not be negative, use {}", PROP_DEDUP_WINDOW_MILLIS,
+                    window, DEFAULT_DEDUP_WINDOW_MILLIS);
+                return DEFAULT_DEDUP_WINDOW_MILLIS;
+            }
+            return window;
+        }
+
+        private static long positive(Logger log, String property, long value, long defaultValue) {
+            if (value < 1) {
+                log.warn("[AlertRateLimiter] invalid {}={}, must be positive, use {}", property, value, defaultValue);
+                return defaultValue;
+            }
+            return value;
+        }
+    }
+}
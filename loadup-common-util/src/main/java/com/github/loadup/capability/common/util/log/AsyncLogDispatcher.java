@@ -0,0 +1,388 @@
+package com.github.loadup.capability.common.util.log;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * 异步ERROR日志分发：调用线程把已格式化的日志放入有界无锁环形队列（多生产者、单消费者），
+ * 由单个守护线程写入各Logger，appender的I/O不再阻塞请求线程<br>
+ *
+ * <p>每个槽位带序号，生产者CAS推进写指针后写入槽位并发布序号，消费者按序号判断槽位是否就绪；
+ * 槽位对象预先分配，入队除日志字符串外没有额外分配。队列满时按{@link OverflowPolicy}处理。
+ *
+ * <p>日志由消费线程写出，appender看到的线程名与事件时间都属于消费线程；入队时捕获调用线程的MDC，
+ * 写出前在消费线程上恢复，并额外放入{@link #MDC_THREAD}与{@link #MDC_TIME}，
+ * 需要原始线程名与时间时在输出格式中使用<code>%X{loadup.log.thread}</code>与<code>%X{loadup.log.time}</code>。
+ *
+ * <p>通过系统属性<code>loadup.log.async.enabled=true</code>开启共享实例，
+ * {@link AlertLogUtil}与{@link ExceptionLogUtils}随之改为异步输出；未开启时保持同步写入。
+ * JVM退出时会尽量写完队列中剩余的日志。
+ */
+public final class AsyncLogDispatcher {
+
+    /**
+     * 是否开启共享异步实例；开启后日志事件的线程名与时间戳来自消费线程，调用方的值见{@link #MDC_THREAD}与{@link #MDC_TIME}
+     */
+    public static final String PROP_ENABLED     = "loadup.log.async.enabled";
+
+    /**
+     * 队列容量，向上取2的幂
+     */
+    public static final String PROP_CAPACITY    = "loadup.log.async.capacity";
+
+    /**
+     * 队列满时的策略
+     */
+    public static final String PROP_POLICY      = "loadup.log.async.policy";
+
+    /**
+     * 采样策略下每N条保留一条
+     */
+    public static final String PROP_SAMPLE_RATE = "loadup.log.async.sampleRate";
+
+    /**
+     * 写出时MDC中调用线程名的键
+     */
+    public static final String MDC_THREAD = "loadup.log.thread";
+
+    /**
+     * 写出时MDC中入队时间（毫秒时间戳）的键
+     */
+    public static final String MDC_TIME   = "loadup.log.time";
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int             mask;
+    private final Slot[]          slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong      tail    = new AtomicLong();
+    private final AtomicLong      sampler = new AtomicLong();
+    private final OverflowPolicy  policy;
+    private final int             sampleRate;
+    private final AsyncLogMetrics metrics;
+    private final Thread          consumer;
+    private volatile long         head;
+    private volatile boolean      running = true;
+
+    /**
+     * @param capacity   队列容量，向上取2的幂
+     * @param policy     队列满时的策略
+     * @param sampleRate 采样策略下每N条保留一条
+     */
+    public AsyncLogDispatcher(int capacity, OverflowPolicy policy, int sampleRate) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be in [2, 2^30]");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new Slot[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.metrics = new AsyncLogMetrics(this::depth);
+        this.consumer = new Thread(this::consume, "loadup-async-log");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * @return 共享实例，未通过系统属性开启时返回null
+     */
+    public static AsyncLogDispatcher shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 输出一条ERROR日志：开启共享异步实例时入队，否则同步写入
+     *
+     * @param logger  日志对象
+     * @param message 已格式化的日志
+     * @param e       异常信息，可为null
+     */
+    static void error(Logger logger, String message, Throwable e) {
+        AsyncLogDispatcher dispatcher = Holder.INSTANCE;
+        if (dispatcher != null) {
+            dispatcher.publish(logger, message, e);
+        } else {
+            write(logger, message, e);
+        }
+    }
+
+    /**
+     * 入队一条ERROR日志，同时捕获调用线程的MDC、线程名与当前时间；与{@link #shutdown}并发时要么写出，要么返回false
+     *
+     * @param logger  日志对象
+     * @param message 已格式化的日志
+     * @param e       异常信息，可为null
+     * @return 是否入队，被丢弃或已关闭时返回false
+     */
+    public boolean publish(Logger logger, String message, Throwable e) {
+        long timestamp = System.currentTimeMillis();
+        if (!running) {
+            return false;
+        }
+        if (policy == OverflowPolicy.SAMPLE && depth() > mask / 2
+            && sampler.getAndIncrement() % sampleRate != 0) {
+            metrics.recordSampledOut();
+            return false;
+        }
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // 队列已满；消费线程已退出时不再等待
+                if (policy != OverflowPolicy.BLOCK || !running || !consumer.isAlive()) {
+                    metrics.recordDrop();
+                    return false;
+                }
+                metrics.recordBlocked();
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+                pos = tail.get();
+            } else {
+                pos = tail.get();
+            }
+        }
+        int index = (int) (pos & mask);
+        Slot slot = slots[index];
+        if (!running) {
+            // 检查running之后、占位之前关闭，消费线程可能已退出；占住的槽位留空发布，消费线程遇到时跳过
+            sequences.lazySet(index, pos + 1);
+            metrics.recordDrop();
+            return false;
+        }
+        slot.logger = logger;
+        slot.message = message;
+        slot.error = e;
+        slot.context = MDC.getCopyOfContextMap();
+        slot.thread = Thread.currentThread().getName();
+        slot.timestamp = timestamp;
+        sequences.lazySet(index, pos + 1);
+        metrics.recordPublish(Math.min(pos + 1 - head, mask + 1));
+        return true;
+    }
+
+    /**
+     * 等待队列中已有的日志写完
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否在超时前写完
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (head < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * 停止接收新日志，写完剩余日志后结束消费线程
+     *
+     * @param timeout 等待写完的超时时间
+     * @param unit    时间单位
+     * @return 是否在超时前写完
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        boolean drained = flush(timeout, unit);
+        LockSupport.unpark(consumer);
+        return drained;
+    }
+
+    /**
+     * @return 指标
+     */
+    public AsyncLogMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return 队列容量
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    private long depth() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    private void consume() {
+        long pos = head;
+        while (running || pos < tail.get()) {
+            int index = (int) (pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            Slot slot = slots[index];
+            Logger logger = slot.logger;
+            String message = slot.message;
+            Throwable error = slot.error;
+            Map<String, String> context = slot.context;
+            String thread = slot.thread;
+            long timestamp = slot.timestamp;
+            slot.logger = null;
+            slot.message = null;
+            slot.error = null;
+            slot.context = null;
+            slot.thread = null;
+            sequences.lazySet(index, pos + mask + 1);
+            pos++;
+            if (logger == null) {
+                // 关闭时被放弃的槽位
+                head = pos;
+                continue;
+            }
+            try {
+                if (context != null) {
+                    MDC.setContextMap(context);
+                }
+                MDC.put(MDC_THREAD, thread);
+                MDC.put(MDC_TIME, Long.toString(timestamp));
+                write(logger, message, error);
+            } catch (Throwable ignore) {
+                // appender抛出的任何异常或错误都不能终止消费线程
+            } finally {
+                MDC.clear();
+            }
+            // 写出之后再推进，flush与shutdown返回时日志已交给appender
+            head = pos;
+            metrics.recordWritten();
+        }
+    }
+
+    private static void write(Logger logger, String message, Throwable e) {
+        if (e == null) {
+            logger.error(message);
+        } else {
+            logger.error(message, e);
+        }
+    }
+
+    private static final class Slot {
+
+        private Logger              logger;
+        private String              message;
+        private Throwable           error;
+        private Map<String, String> context;
+        private String              thread;
+        private long                timestamp;
+    }
+
+    /**
+     * 共享实例，首次使用时按系统属性创建；属性非法时告警并使用默认值，创建失败时告警并退回同步写入，
+     * 不能让初始化异常传到{@link AlertLogUtil}与{@link ExceptionLogUtils}
+     */
+    private static final class Holder {
+
+        private static final int            DEFAULT_CAPACITY    = 8192;
+
+        private static final OverflowPolicy DEFAULT_POLICY      = OverflowPolicy.DROP;
+
+        private static final int            DEFAULT_SAMPLE_RATE = 10;
+
+        private static final AsyncLogDispatcher INSTANCE = create();
+
+        private static AsyncLogDispatcher create() {
+            Logger log = LoggerFactory.getLogger(AsyncLogDispatcher.class);
+            try {
+                if (!Boolean.getBoolean(PROP_ENABLED)) {
+                    return null;
+                }
+                AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(capacity(log), policy(log), sampleRate(log));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> dispatcher.shutdown(5, TimeUnit.SECONDS),
+                    "loadup-async-log-shutdown"));
+                return dispatcher;
+            } catch (RuntimeException e) {
+                log.warn("[AsyncLogDispatcher] create shared dispatcher failed, fall back to synchronous logging", e);
+                return null;
+            }
+        }
+
+        private static int capacity(Logger log) {
+            Integer capacity = Integer.getInteger(PROP_CAPACITY, DEFAULT_CAPACITY);
+            if (capacity < 2 || capacity > (1 << 30)) {
+                log.warn("[AsyncLogDispatcher] invalid {}={}, must be in [2, 2^30], use {}", PROP_CAPACITY,
+                    System.getProperty(PROP_CAPACITY), DEFAULT_CAPACITY);
+                return DEFAULT_CAPACITY;
+            }
+            return capacity;
+        }
+
+        private static OverflowPolicy policy(Logger log) {
+            String value = System.getProperty(PROP_POLICY);
+            if (value == null) {
+                return DEFAULT_POLICY;
+            }
+            try {
+                return OverflowPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("[AsyncLogDispatcher] invalid {}={}, use {}", PROP_POLICY, value, DEFAULT_POLICY);
+                return DEFAULT_POLICY;
+            }
+        }
+
+        private static int sampleRate(Logger log) {
+            Integer sampleRate = Integer.getInteger(PROP_SAMPLE_RATE, DEFAULT_SAMPLE_RATE);
+            if (sampleRate < 1) {
+                log.warn("[AsyncLogDispatcher] invalid {}={}, must be positive, use {}", PROP_SAMPLE_RATE,
+                    System.getProperty(PROP_SAMPLE_RATE), DEFAULT_SAMPLE_RATE);
+                return DEFAULT_SAMPLE_RATE;
+            }
+            return sampleRate;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.loadup.capability.common.util.log;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 异步日志指标：计数器按事件累加，队列深度实时读取，最大深度为观测到的峰值，供监控定期采集
+ */
+public class AsyncLogMetrics {
+
+    private final LongSupplier depth;
+    private final LongAdder    published  = new LongAdder();
+    private final LongAdder    dropped    = new LongAdder();
+    private final LongAdder    sampledOut = new LongAdder();
+    private final LongAdder    blocked    = new LongAdder();
+    private final LongAdder    written    = new LongAdder();
+    private final AtomicLong   maxDepth   = new AtomicLong();
+
+    AsyncLogMetrics(LongSupplier depth) {
+        this.depth = depth;
+    }
+
+    void recordPublish(long currentDepth) {
+        published.increment();
+        long current;
+        while (currentDepth > (current = maxDepth.get())) {
+            if (maxDepth.compareAndSet(current, currentDepth)) {
+                return;
+            }
+        }
+    }
+
+    void recordDrop() {
+        dropped.increment();
+    }
+
+    void recordSampledOut() {
+        sampledOut.increment();
+    }
+
+    void recordBlocked() {
+        blocked.increment();
+    }
+
+    void recordWritten() {
+        written.increment();
+    }
+
+    /**
+     * @return 当前队列深度
+     */
+    public long getDepth() {
+        return depth.getAsLong();
+    }
+
+    /**
+     * @return 观测到的最大队列深度
+     */
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return 成功入队的日志条数
+     */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * @return 已由消费线程写出的日志条数
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * @return 因队列已满被丢弃的条数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return 采样策略下未被选中而丢弃的条数
+     */
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    /**
+     * @return 阻塞策略下因队列已满而等待的次数
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncLogMetrics[depth=" + getDepth() + ", maxDepth=" + getMaxDepth()
+                + ", published=" + getPublishedCount() + ", written=" + getWrittenCount()
+                + ", dropped=" + getDroppedCount() + ", sampledOut=" + getSampledOutCount()
+                + ", blocked=" + getBlockedCount() + "]";
+    }
+}
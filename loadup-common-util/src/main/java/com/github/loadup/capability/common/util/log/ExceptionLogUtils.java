@@ -33,6 +33,7 @@ import org.slf4j.LoggerFactory;
 /**
  * 捕捉到异常的时候，我们通常会使用<code>logger.error("xxxx",e)</code>方式打印日常堆栈日志<br>
  * 但是这种方式会造成错误日志打印两遍，精益求精，日志也追求极致，错误日志尽量使用本工具类输出。
+ * 开启{@link AsyncLogDispatcher}后改为异步输出。
  */
 public final class ExceptionLogUtils {
 
@@ -55,7 +56,9 @@ public final class ExceptionLogUtils {
      * @param message 错误日志上下文信息描述，尽量带上业务特征
      */
     public static void error(Throwable e, Object... message) {
-        LogUtils.error(logger, e, message);
+        if (logger.isErrorEnabled()) {
+            AsyncLogDispatcher.error(logger, LogUtils.getLogString(message), e);
+        }
     }
 
     /**
@@ -64,7 +67,28 @@ public final class ExceptionLogUtils {
      * @param message 错误日志上下文信息描述，尽量带上业务特征
      */
     public static void error(Object... message) {
-        logger.error(LogUtils.getLogString(message));
+        if (logger.isErrorEnabled()) {
+            AsyncLogDispatcher.error(logger, LogUtils.getLogString(message), null);
+        }
+    }
+
+    /**
+     * @return 错误日志是否开启
+     */
+    static boolean isEnabled() {
+        return logger.isErrorEnabled();
+    }
+
+    /**
+     * 输出已格式化的错误日志
+     *
+     * @param log 日志字符串
+     * @param e   异常堆栈，可为null
+     */
+    static void write(String log, Throwable e) {
+        if (logger.isErrorEnabled()) {
+            AsyncLogDispatcher.error(logger, log, e);
+        }
     }
 
 }
@@ -29,6 +29,8 @@ package com.github.loadup.capability.common.util.log;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
+import java.util.function.Supplier;
+
 /**
  * 规范化日志打印工具，注意日志的级别选择：<br>
  *
@@ -46,6 +48,9 @@ import org.slf4j.Logger;
  * @notice <li>ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
  * <li>报警日志记录请使用{@link AlertLogUtil}，只记录一些非常关键的异常信息
  * <li>日志记录支持数组参数，禁止使用“+”拼接入参，全部使用“,”由工具自行拼接
+ * <li>warn/error的2~4个参数有定长重载，级别关闭时没有分配；只有1个参数时<code>warn(logger, msg)</code>
+ * 仍走可变参数版本（为保持<code>warn(logger, null)</code>等已有调用的绑定不变），会分配数组，
+ * 热路径请使用{@link #warnMessage(Logger, Object)}、{@link #errorMessage(Logger, Object)}
  * </p>
  */
 public class LogUtils {
@@ -65,6 +70,18 @@ public class LogUtils {
      */
     private static final char LEFT_TAG = '[';
 
+    /**
+     * 日志缓冲区初始容量
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 线程缓存的日志缓冲区容量上限，超过后丢弃重建
+     */
+    private static final int MAX_CACHED_CAPACITY = 8192;
+
+    private static final ThreadLocal<LogBuffer> BUFFERS = ThreadLocal.withInitial(LogBuffer::new);
+
     /**
      * 打印info日志。
      *
@@ -97,7 +114,9 @@ public class LogUtils {
      * @param objs   任意个要输出到日志的参数
      */
     public static void warn(Logger logger, Object... objs) {
-        logger.warn(getLogString(objs));
+        if (logger.isWarnEnabled()) {
+            logger.warn(getLogString(objs));
+        }
     }
 
     /**
@@ -108,7 +127,146 @@ public class LogUtils {
      * @param objs   任意个要输出到日志的参数
      */
     public static void warn(Logger logger, Throwable e, Object... objs) {
-        logger.warn(getLogString(objs), e);
+        if (logger.isWarnEnabled()) {
+            logger.warn(getLogString(objs), e);
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger 日志对象
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     */
+    public static void warn(Logger logger, Object o1, Object o2) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(2, o1, o2, null, null));
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger 日志对象
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     */
+    public static void warn(Logger logger, Object o1, Object o2, Object o3) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(3, o1, o2, o3, null));
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger 日志对象
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     * @param o4     要输出到日志的参数
+     */
+    public static void warn(Logger logger, Object o1, Object o2, Object o3, Object o4) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(4, o1, o2, o3, o4));
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     */
+    public static void warn(Logger logger, Throwable e, Object o1) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(1, o1, null, null, null), e);
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     */
+    public static void warn(Logger logger, Throwable e, Object o1, Object o2) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(2, o1, o2, null, null), e);
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     */
+    public static void warn(Logger logger, Throwable e, Object o1, Object o2, Object o3) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(3, o1, o2, o3, null), e);
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     * @param o4     要输出到日志的参数
+     */
+    public static void warn(Logger logger, Throwable e, Object o1, Object o2, Object o3, Object o4) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(4, o1, o2, o3, o4), e);
+        }
+    }
+
+    /**
+     * 打印单个参数的warn日志，级别未开启时不拼接任何内容，也不分配可变参数数组。
+     *
+     * @param logger  日志对象
+     * @param message 要输出到日志的参数
+     */
+    public static void warnMessage(Logger logger, Object message) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(1, message, null, null, null));
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger  日志对象
+     * @param message 日志内容，仅在级别开启时求值
+     */
+    public static void warnLazy(Logger logger, Supplier<?> message) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(1, message.get(), null, null, null));
+        }
+    }
+
+    /**
+     * 打印warn日志，级别未开启时不拼接任何内容。
+     *
+     * @param logger  日志对象
+     * @param e       异常信息
+     * @param message 日志内容，仅在级别开启时求值
+     */
+    public static void warnLazy(Logger logger, Throwable e, Supplier<?> message) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(1, message.get(), null, null, null), e);
+        }
     }
 
     /**
@@ -121,7 +279,9 @@ public class LogUtils {
      * @param objs   任意个要输出到日志的参数
      */
     public static void error(Logger logger, Throwable e, Object... objs) {
-        logger.error(getLogString(objs), e);
+        if (logger.isErrorEnabled()) {
+            logger.error(getLogString(objs), e);
+        }
     }
 
     /**
@@ -133,7 +293,166 @@ public class LogUtils {
      * @param objs   任意个要输出到日志的参数
      */
     public static void error(Logger logger, Object... objs) {
-        logger.error(getLogString(objs));
+        if (logger.isErrorEnabled()) {
+            logger.error(getLogString(objs));
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger 日志对象
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     */
+    public static void error(Logger logger, Object o1, Object o2) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(2, o1, o2, null, null));
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger 日志对象
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     */
+    public static void error(Logger logger, Object o1, Object o2, Object o3) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(3, o1, o2, o3, null));
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger 日志对象
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     * @param o4     要输出到日志的参数
+     */
+    public static void error(Logger logger, Object o1, Object o2, Object o3, Object o4) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(4, o1, o2, o3, o4));
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     */
+    public static void error(Logger logger, Throwable e, Object o1) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(1, o1, null, null, null), e);
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     */
+    public static void error(Logger logger, Throwable e, Object o1, Object o2) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(2, o1, o2, null, null), e);
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     */
+    public static void error(Logger logger, Throwable e, Object o1, Object o2, Object o3) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(3, o1, o2, o3, null), e);
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger 日志对象
+     * @param e      异常信息
+     * @param o1     要输出到日志的参数
+     * @param o2     要输出到日志的参数
+     * @param o3     要输出到日志的参数
+     * @param o4     要输出到日志的参数
+     */
+    public static void error(Logger logger, Throwable e, Object o1, Object o2, Object o3, Object o4) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(4, o1, o2, o3, o4), e);
+        }
+    }
+
+    /**
+     * 打印单个参数的error日志，级别未开启时不拼接任何内容，也不分配可变参数数组。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger  日志对象
+     * @param message 要输出到日志的参数
+     */
+    public static void errorMessage(Logger logger, Object message) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(1, message, null, null, null));
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger  日志对象
+     * @param message 日志内容，仅在级别开启时求值
+     */
+    public static void errorLazy(Logger logger, Supplier<?> message) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(1, message.get(), null, null, null));
+        }
+    }
+
+    /**
+     * 打印error日志，级别未开启时不拼接任何内容。
+     *
+     * ERROR日志记录尽量使用{@link ExceptionLogUtil}，避免日志的重复记录
+     *
+     * @param logger  日志对象
+     * @param e       异常信息
+     * @param message 日志内容，仅在级别开启时求值
+     */
+    public static void errorLazy(Logger logger, Throwable e, Supplier<?> message) {
+        if (logger.isErrorEnabled()) {
+            logger.error(format(1, message.get(), null, null, null), e);
+        }
     }
 
     /**
@@ -146,7 +465,9 @@ public class LogUtils {
      * @param objs        任意个要输出到日志的参数
      */
     public static void error(String messageName, Logger logger, Object... objs) {
-        logger.error(getLogString(messageName, objs));
+        if (logger.isErrorEnabled()) {
+            logger.error(getLogString(messageName, objs));
+        }
     }
 
     /**
@@ -159,7 +480,9 @@ public class LogUtils {
      * @param objs        任意个要输出到日志的参数
      */
     public static void alert(String messageName, Logger logger, Object... objs) {
-        logger.error(getLogString(messageName, objs));
+        if (logger.isErrorEnabled()) {
+            logger.error(getLogString(messageName, objs));
+        }
     }
 
     /**
@@ -196,21 +519,22 @@ public class LogUtils {
      * @return 日志字符串
      */
     public static String getLogString(String messageName, Object... objs) {
-        StringBuilder log = new StringBuilder();
-        log.append(LEFT_TAG);
-        log.append(fetchInvokeId()).append(SEP);
-        // 预留扩展位
-        log.append(SEP).append(SEP).append(RIGHT_TAG);
-
-        log.append(LEFT_TAG).append(messageName).append(RIGHT_TAG);
-
-        if (objs != null) {
-            for (Object o : objs) {
-                log.append(o);
+        LogBuffer buffer = BUFFERS.get();
+        StringBuilder log = buffer.acquire();
+        try {
+            appendPrefix(log, buffer);
+            log.append(LEFT_TAG);
+            appendArg(log, messageName);
+            log.append(RIGHT_TAG);
+            if (objs != null) {
+                for (Object o : objs) {
+                    appendArg(log, o);
+                }
             }
+            return log.toString();
+        } finally {
+            buffer.release(log);
         }
-
-        return log.toString();
     }
 
     /**
@@ -220,28 +544,125 @@ public class LogUtils {
      * @return 日志字符串
      */
     public static String getLogString(Object... objs) {
-        StringBuilder log = new StringBuilder();
+        LogBuffer buffer = BUFFERS.get();
+        StringBuilder log = buffer.acquire();
+        try {
+            appendPrefix(log, buffer);
+            if (objs != null) {
+                for (Object o : objs) {
+                    appendArg(log, o);
+                }
+            }
+            return log.toString();
+        } finally {
+            buffer.release(log);
+        }
+    }
+
+    /**
+     * 获取上下文的调用id：优先取{@link TraceContext}的traceId，没有时退化为线程id。
+     *
+     * @return 调用id
+     */
+    public static String fetchInvokeId() {
+        return invokeId(BUFFERS.get());
+    }
+
+    /**
+     * 定长参数的日志拼接，只追加前<code>count</code>个参数，避免可变参数数组
+     */
+    private static String format(int count, Object o1, Object o2, Object o3, Object o4) {
+        LogBuffer buffer = BUFFERS.get();
+        StringBuilder log = buffer.acquire();
+        try {
+            appendPrefix(log, buffer);
+            if (count > 0) {
+                appendArg(log, o1);
+            }
+            if (count > 1) {
+                appendArg(log, o2);
+            }
+            if (count > 2) {
+                appendArg(log, o3);
+            }
+            if (count > 3) {
+                appendArg(log, o4);
+            }
+            return log.toString();
+        } finally {
+            buffer.release(log);
+        }
+    }
+
+    /**
+     * 写入日志前缀
+     * <p>输出格式:[invokeId,,]
+     */
+    private static void appendPrefix(StringBuilder log, LogBuffer buffer) {
         log.append(LEFT_TAG);
-        log.append(fetchInvokeId()).append(SEP);
+        log.append(invokeId(buffer)).append(SEP);
         // 预留扩展位
         log.append(SEP).append(SEP).append(RIGHT_TAG);
+    }
 
-        if (objs != null) {
-            for (Object o : objs) {
-                log.append(o);
-            }
+    private static String invokeId(LogBuffer buffer) {
+        String traceId = TraceContext.currentTraceId();
+        return StringUtils.defaultIfBlank(traceId, buffer.threadId);
+    }
+
+    /**
+     * 追加单个参数：字符序列与常见包装类型直接写入，不经过中间的toString
+     */
+    private static void appendArg(StringBuilder log, Object o) {
+        if (o instanceof String) {
+            log.append((String) o);
+        } else if (o instanceof CharSequence) {
+            log.append((CharSequence) o);
+        } else if (o instanceof Integer) {
+            log.append(((Integer) o).intValue());
+        } else if (o instanceof Long) {
+            log.append(((Long) o).longValue());
+        } else if (o instanceof Boolean) {
+            log.append(((Boolean) o).booleanValue());
+        } else if (o instanceof Character) {
+            log.append(((Character) o).charValue());
+        } else if (o instanceof Short || o instanceof Byte) {
+            log.append(((Number) o).intValue());
+        } else {
+            log.append(o);
         }
-        return log.toString();
     }
 
     /**
-     * 获取上下文的调用id。
+     * 线程复用的日志拼接缓冲区<br>
      *
-     * @return 调用id
+     * <p>参数的toString中再次打日志时缓冲区正被占用，此时退化为新建StringBuilder；
+     * 单条日志把容量撑得过大时丢弃，避免长期占用内存。
      */
-    public static String fetchInvokeId() {
-        String traceId = "";// TracerContextUtil.getTraceId();
-        return StringUtils.defaultIfBlank(traceId, String.valueOf(Thread.currentThread().getId()));
+    private static final class LogBuffer {
+
+        private final String  threadId = String.valueOf(Thread.currentThread().getId());
+        private StringBuilder builder  = new StringBuilder(INITIAL_CAPACITY);
+        private boolean       inUse;
+
+        StringBuilder acquire() {
+            if (inUse) {
+                return new StringBuilder(INITIAL_CAPACITY);
+            }
+            inUse = true;
+            builder.setLength(0);
+            return builder;
+        }
+
+        void release(StringBuilder log) {
+            if (log != builder) {
+                return;
+            }
+            inUse = false;
+            if (builder.capacity() > MAX_CACHED_CAPACITY) {
+                builder = new StringBuilder(INITIAL_CAPACITY);
+            }
+        }
     }
 
 }
@@ -0,0 +1,431 @@
+package com.github.loadup.capability.common.util.log;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 轻量的链路上下文：traceId、spanId与扩展字段，保存在线程变量中<br>
+ *
+ * <p>上下文不可变，可以安全地在线程间共享；{@link #wrapRunnable(Runnable)}等方法在包装时捕获当前上下文，
+ * 执行时在目标线程上恢复，结束后还原目标线程原有的上下文，因此对线程池、{@link CompletableFuture}
+ * 以及虚拟线程执行器（包装<code>Executors.newVirtualThreadPerTaskExecutor()</code>）都适用。
+ * {@link LogUtils#fetchInvokeId()}优先使用当前traceId。
+ *
+ * <p>ID由{@link ThreadLocalRandom}生成的随机数直接编码为十六进制，每个ID只分配一个String。
+ */
+public final class TraceContext {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private final String              traceId;
+    private final String              spanId;
+    private final Map<String, String> extensions;
+
+    private TraceContext(String traceId, String spanId, Map<String, String> extensions) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.extensions = extensions;
+    }
+
+    /**
+     * 创建新的链路，traceId为32位、spanId为16位十六进制
+     *
+     * @return 上下文
+     */
+    public static TraceContext newTrace() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(hex(random.nextLong(), random.nextLong()), hex(random.nextLong()),
+            Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * 使用上游传入的ID，例如从请求头中解析得到
+     *
+     * @param traceId traceId
+     * @param spanId  spanId，为null时生成新的
+     * @return 上下文
+     */
+    public static TraceContext of(String traceId, String spanId) {
+        if (traceId == null || traceId.isEmpty()) {
+            throw new IllegalArgumentException("traceId is blank");
+        }
+        return new TraceContext(traceId, spanId != null ? spanId : hex(ThreadLocalRandom.current().nextLong()),
+            Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * @return 当前线程的上下文，没有时返回null
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return 当前traceId，没有上下文时返回null
+     */
+    public static String currentTraceId() {
+        TraceContext context = CURRENT.get();
+        return context == null ? null : context.traceId;
+    }
+
+    /**
+     * 把上下文绑定到当前线程，关闭返回的{@link Scope}时还原之前的上下文<br>
+     * 用法：<code>try (TraceContext.Scope ignored = TraceContext.newTrace().attach()) { ... }</code>
+     *
+     * @return 作用域
+     */
+    public Scope attach() {
+        TraceContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return new Scope(previous);
+    }
+
+    /**
+     * 同一链路下的子span，保留traceId与扩展字段
+     *
+     * @return 上下文
+     */
+    public TraceContext newSpan() {
+        return new TraceContext(traceId, hex(ThreadLocalRandom.current().nextLong()), extensions);
+    }
+
+    /**
+     * 增加扩展字段，返回新的上下文
+     *
+     * @param key   键
+     * @param value 值
+     * @return 上下文
+     */
+    public TraceContext withExtension(String key, String value) {
+        Map<String, String> copy = new HashMap<>(extensions);
+        copy.put(key, value);
+        return new TraceContext(traceId, spanId, Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * @return traceId
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return spanId
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @param key 键
+     * @return 扩展字段，不存在时返回null
+     */
+    public String getExtension(String key) {
+        return extensions.get(key);
+    }
+
+    /**
+     * @return 只读的扩展字段
+     */
+    public Map<String, String> getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * 捕获当前上下文，在执行线程上恢复
+     *
+     * @param task 任务
+     * @return 包装后的任务，当前没有上下文时原样返回
+     */
+    public static Runnable wrapRunnable(Runnable task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            Scope scope = context.attach();
+            try {
+                task.run();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * 捕获当前上下文，在执行线程上恢复
+     *
+     * @param task 任务
+     * @param <T>  结果类型
+     * @return 包装后的任务，当前没有上下文时原样返回
+     */
+    public static <T> Callable<T> wrapCallable(Callable<T> task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            Scope scope = context.attach();
+            try {
+                return task.call();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * 捕获当前上下文，在执行线程上恢复
+     *
+     * @param task 任务
+     * @param <T>  结果类型
+     * @return 包装后的任务，当前没有上下文时原样返回
+     */
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            Scope scope = context.attach();
+            try {
+                return task.get();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * 包装执行器，提交任务时自动捕获提交线程的上下文
+     *
+     * @param executor 执行器
+     * @return 包装后的执行器
+     */
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        return executor instanceof TracingExecutor ? executor : new TracingExecutor(executor);
+    }
+
+    /**
+     * 包装线程池，提交任务时自动捕获提交线程的上下文，也适用于虚拟线程执行器
+     *
+     * @param executor 线程池
+     * @return 包装后的线程池
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        return executor instanceof TracingExecutorService ? executor : new TracingExecutorService(executor);
+    }
+
+    /**
+     * 带上下文的{@link CompletableFuture#supplyAsync(Supplier, Executor)}
+     *
+     * @param supplier 任务
+     * @param executor 执行器
+     * @param <T>      结果类型
+     * @return future
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(wrapSupplier(supplier), executor);
+    }
+
+    /**
+     * 带上下文的{@link CompletableFuture#runAsync(Runnable, Executor)}
+     *
+     * @param task     任务
+     * @param executor 执行器
+     * @return future
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+        return CompletableFuture.runAsync(wrapRunnable(task), executor);
+    }
+
+    @Override
+    public String toString() {
+        return "TraceContext[traceId=" + traceId + ", spanId=" + spanId + ", extensions=" + extensions + "]";
+    }
+
+    private static String hex(long value) {
+        char[] chars = new char[16];
+        putHex(value, chars, 0);
+        return new String(chars);
+    }
+
+    private static String hex(long high, long low) {
+        char[] chars = new char[32];
+        putHex(high, chars, 0);
+        putHex(low, chars, 16);
+        return new String(chars);
+    }
+
+    private static void putHex(long value, char[] chars, int off) {
+        for (int i = 15; i >= 0; i--) {
+            chars[off + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * {@link #attach()}的作用域，关闭时还原之前的上下文
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final TraceContext previous;
+
+        private Scope(TraceContext previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    private static final class TracingExecutor implements Executor {
+
+        private final Executor delegate;
+
+        TracingExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrapRunnable(command));
+        }
+    }
+
+    private static final class TracingExecutorService implements ExecutorService {
+
+        private final ExecutorService delegate;
+
+        TracingExecutorService(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrapRunnable(command));
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(wrapCallable(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return delegate.submit(wrapRunnable(task), result);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(wrapRunnable(task));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+            List<Callable<T>> wrapped = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                wrapped.add(wrapCallable(task));
+            }
+            return wrapped;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.loadup.capability.common.util.core;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void idsAreUniqueAndMonotonicPerThreadUnderContention() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(42);
+        int threads = 8;
+        int perThread = 100_000;
+        long[][] results = new long[threads][perThread];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] ids = results[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get());
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            long[] ids = results[t];
+            for (int i = 1; i < perThread; i++) {
+                assertTrue(ids[i] > ids[i - 1], "ids of one thread must be strictly increasing");
+            }
+            System.arraycopy(ids, 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "duplicate id " + all[i]);
+        }
+        for (long id : all) {
+            assertTrue(id > 0);
+            assertEquals(42, SnowflakeIdGenerator.workerIdOf(id));
+        }
+    }
+
+    @Test
+    void decodesTimestampWorkerAndSequence() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID);
+        long before = System.currentTimeMillis();
+        long id = generator.nextId();
+        long after = System.currentTimeMillis();
+
+        long timestamp = SnowflakeIdGenerator.timestampOf(id);
+        assertTrue(timestamp >= before && timestamp <= after);
+        assertEquals(SnowflakeIdGenerator.MAX_WORKER_ID, SnowflakeIdGenerator.workerIdOf(id));
+        assertEquals(SnowflakeIdGenerator.MAX_WORKER_ID, generator.getWorkerId());
+        assertTrue(id >= SnowflakeIdGenerator.minIdOf(timestamp));
+        assertTrue(id <= SnowflakeIdGenerator.maxIdOf(timestamp));
+
+        // 同一毫秒内序列号加1，进入新的毫秒时从0开始
+        long next = generator.nextId();
+        if (SnowflakeIdGenerator.timestampOf(next) == timestamp) {
+            assertEquals(SnowflakeIdGenerator.sequenceOf(id) + 1, SnowflakeIdGenerator.sequenceOf(next));
+        } else {
+            assertEquals(0, SnowflakeIdGenerator.sequenceOf(next));
+        }
+    }
+
+    @Test
+    void borrowsAheadWhenSequenceIsExhausted() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        long previous = 0;
+        // 远超每毫秒4096个的速度，必然进位到未来的毫秒
+        for (int i = 0; i < 1_000_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        ClockSkewMetrics metrics = generator.getMetrics();
+        assertTrue(metrics.getBorrowCount() > 0);
+        assertTrue(metrics.getMaxAheadMillis() > 0);
+        assertEquals(0, metrics.getWaitCount());
+        assertEquals(0, metrics.getFailureCount());
+    }
+
+    @Test
+    void waitPolicyBoundsBorrowAhead() {
+        long maxBorrowMillis = 2;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, maxBorrowMillis, ClockSkewPolicy.WAIT);
+        long previous = 0;
+        for (int i = 0; i < 200_000; i++) {
+            long id = generator.nextId();
+            long now = System.currentTimeMillis();
+            assertTrue(id > previous);
+            assertTrue(SnowflakeIdGenerator.timestampOf(id) - now <= maxBorrowMillis);
+            previous = id;
+        }
+        ClockSkewMetrics metrics = generator.getMetrics();
+        assertTrue(metrics.getWaitCount() > 0);
+        assertTrue(metrics.getMaxAheadMillis() <= maxBorrowMillis);
+        assertEquals(0, metrics.getFailureCount());
+    }
+
+    @Test
+    void failPolicyThrowsWhenBorrowLimitExceeded() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0, ClockSkewPolicy.FAIL);
+        ClockSkewException thrown = null;
+        long previous = 0;
+        for (int i = 0; i < 10_000_000 && thrown == null; i++) {
+            try {
+                long id = generator.nextId();
+                assertTrue(id > previous);
+                assertTrue(SnowflakeIdGenerator.timestampOf(id) <= System.currentTimeMillis());
+                previous = id;
+            } catch (ClockSkewException e) {
+                thrown = e;
+            }
+        }
+        assertTrue(thrown != null, "sequence exhaustion within one millisecond must exceed a zero borrow limit");
+        assertTrue(thrown.getAheadMillis() > 0);
+        assertEquals(1, generator.getMetrics().getFailureCount());
+        assertEquals(0, generator.getMetrics().getBorrowCount());
+
+        // 失败不推进状态，时钟追上后继续递增
+        long next = nextIdAfterClockCatchesUp(generator);
+        assertTrue(next > previous);
+    }
+
+    @Test
+    void rejectsNegativeBorrowLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1, -1, ClockSkewPolicy.FAIL));
+    }
+
+    private static long nextIdAfterClockCatchesUp(SnowflakeIdGenerator generator) {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (true) {
+            try {
+                return generator.nextId();
+            } catch (ClockSkewException e) {
+                assertTrue(System.currentTimeMillis() < deadline, "clock did not catch up");
+                Thread.yield();
+            }
+        }
+    }
+
+    @Test
+    void rejectsWorkerIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1));
+    }
+}
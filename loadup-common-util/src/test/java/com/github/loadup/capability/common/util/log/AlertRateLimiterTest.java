@@ -0,0 +1,232 @@
+package com.github.loadup.capability.common.util.log;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class AlertRateLimiterTest {
+
+    private static final String EVICTED_KEY = "__evicted__";
+
+    @Test
+    void allowsBurstThenRefillsAtRate() throws InterruptedException {
+        AlertRateLimiter limiter = new AlertRateLimiter(10, 3, 0);
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+        assertEquals(1, limiter.getSuppressedCount("a"));
+
+        // 其他messageName不受影响
+        assertTrue(limiter.tryAcquire("b"));
+
+        // 100ms补充一个令牌
+        Thread.sleep(150);
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+        assertEquals(2, limiter.getSuppressedCount("a"));
+    }
+
+    @Test
+    void acceptsNullMessageName() {
+        AlertRateLimiter limiter = new AlertRateLimiter(10, 1, 10_000);
+        assertTrue(limiter.tryAcquire(null));
+        assertFalse(limiter.tryAcquire(null));
+        assertFalse(limiter.isDuplicate(null, "[t1]x"));
+        assertTrue(limiter.isDuplicate(null, "[t2]x"));
+        assertEquals(2, limiter.getSuppressedCount(null));
+    }
+
+    @Test
+    void suppressesDuplicatesWithinWindow() throws InterruptedException {
+        AlertRateLimiter limiter = new AlertRateLimiter(1000, 1000, 200);
+        assertFalse(limiter.isDuplicate("a", "[trace-1][a]failed"));
+        // traceId前缀不参与比较
+        assertTrue(limiter.isDuplicate("a", "[trace-2][a]failed"));
+        assertFalse(limiter.isDuplicate("a", "[trace-3][a]other"));
+        // 去重表按messageName隔离
+        assertFalse(limiter.isDuplicate("b", "[trace-4][a]failed"));
+        assertEquals(1, limiter.getSuppressedCount("a"));
+
+        Thread.sleep(300);
+        assertFalse(limiter.isDuplicate("a", "[trace-5][a]failed"));
+    }
+
+    @Test
+    void zeroWindowDisablesDedup() {
+        AlertRateLimiter limiter = new AlertRateLimiter(1000, 1000, 0);
+        assertFalse(limiter.isDuplicate("a", "[t]same"));
+        assertFalse(limiter.isDuplicate("a", "[t]same"));
+        assertEquals(0, limiter.getSuppressedCount("a"));
+    }
+
+    @Test
+    void concurrentDuplicatesLetExactlyOneThrough() throws InterruptedException {
+        AlertRateLimiter limiter = new AlertRateLimiter(1000, 1000, 60_000);
+        int threads = 8;
+        for (int round = 0; round < 200; round++) {
+            String log = "[trace]content-" + round;
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger passed = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (!limiter.isDuplicate("a", log)) {
+                        passed.incrementAndGet();
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(1, passed.get());
+        }
+    }
+
+    @Test
+    void drainReportsAndResetsSuppressedCounts() {
+        AlertRateLimiter limiter = new AlertRateLimiter(1, 1, 0);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        Map<String, Long> drained = drain(limiter);
+        assertEquals(1, drained.size());
+        assertEquals(2L, drained.get("a"));
+        assertEquals(0, limiter.getSuppressedCount("a"));
+        assertTrue(drain(limiter).isEmpty());
+    }
+
+    @Test
+    void evictsLeastRecentlyAllowedKeyWhenFull() {
+        // 1秒内都不会空闲
+        AlertRateLimiter limiter = new AlertRateLimiter(1, 1, 0);
+        for (int i = 0; i < 1024; i++) {
+            assertTrue(limiter.tryAcquire("k" + i));
+            assertFalse(limiter.tryAcquire("k" + i));
+        }
+        assertTrue(limiter.tryAcquire("new"));
+
+        // 最早放行的k0被淘汰，其抑制条数并入淘汰汇总
+        assertEquals(0, limiter.getSuppressedCount("k0"));
+        Map<String, Long> drained = drain(limiter);
+        assertEquals(1L, drained.get(EVICTED_KEY));
+        assertNull(drained.get("k0"));
+        assertEquals(1L, drained.get("k1023"));
+        assertEquals(1024, drained.size());
+    }
+
+    @Test
+    void evictsIdleKeysFirst() throws InterruptedException {
+        // 每个messageName 1ms后空闲
+        AlertRateLimiter limiter = new AlertRateLimiter(1000, 1, 0);
+        for (int i = 0; i < 1024; i++) {
+            limiter.tryAcquire("k" + i);
+            limiter.tryAcquire("k" + i);
+        }
+        Thread.sleep(20);
+        assertTrue(limiter.tryAcquire("new"));
+        assertFalse(limiter.tryAcquire("new"));
+
+        Map<String, Long> drained = drain(limiter);
+        assertEquals(1024L, drained.get(EVICTED_KEY));
+        assertEquals(1L, drained.get("new"));
+        assertEquals(2, drained.size());
+    }
+
+    @Test
+    void concurrentCallersSurviveEviction() throws InterruptedException {
+        AlertRateLimiter limiter = new AlertRateLimiter(1_000_000, 1_000_000, 60_000);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20_000; i++) {
+                        String name = "k" + ((i * 8 + offset) % 4096);
+                        if (!limiter.tryAcquire(name)) {
+                            rejected.incrementAndGet();
+                        }
+                        limiter.isDuplicate(name, "[t]" + name);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get());
+        assertEquals(0, rejected.get());
+        // 汇总时没有遗留状态异常
+        drain(limiter);
+        assertTrue(drain(limiter).isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new AlertRateLimiter(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AlertRateLimiter(Double.NaN, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AlertRateLimiter(Double.POSITIVE_INFINITY, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AlertRateLimiter(1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AlertRateLimiter(1, 1, -1));
+    }
+
+    private static Map<String, Long> drain(AlertRateLimiter limiter) {
+        Map<String, Long> drained = new ConcurrentHashMap<>();
+        limiter.drainSuppressed(drained::put);
+        return new HashMap<>(drained);
+    }
+}
@@ -0,0 +1,350 @@
+package com.github.loadup.capability.common.util.log;
+
+/*-
+ * #%L
+ * loadup-common-util
+ * %%
+ * Copyright (C) 2022 - 2023 loadup_cloud
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.LegacyAbstractLogger;
+
+class AsyncLogDispatcherTest {
+
+    private final List<AsyncLogDispatcher> dispatchers = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        for (AsyncLogDispatcher dispatcher : dispatchers) {
+            dispatcher.shutdown(5, TimeUnit.SECONDS);
+        }
+        MDC.clear();
+    }
+
+    @Test
+    void wrapsAroundRingInOrder() {
+        AsyncLogDispatcher dispatcher = create(4, OverflowPolicy.BLOCK, 1);
+        RecordingLogger logger = new RecordingLogger();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(dispatcher.publish(logger, "m" + i, null));
+        }
+        assertTrue(dispatcher.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(1000, logger.events.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("m" + i, logger.events.get(i).message);
+        }
+        AsyncLogMetrics metrics = dispatcher.getMetrics();
+        assertEquals(4, dispatcher.getCapacity());
+        assertEquals(1000, metrics.getPublishedCount());
+        assertEquals(1000, metrics.getWrittenCount());
+        assertEquals(0, metrics.getDroppedCount());
+        assertTrue(metrics.getMaxDepth() <= 4);
+    }
+
+    @Test
+    void dropPolicyCountsDroppedEvents() throws InterruptedException {
+        AsyncLogDispatcher dispatcher = create(4, OverflowPolicy.DROP, 1);
+        BlockingLogger logger = new BlockingLogger();
+        assertTrue(dispatcher.publish(logger, "first", null));
+        logger.awaitEntered();
+
+        // 消费线程停在第一条上，第一条的槽位已释放，队列还能放下4条
+        for (int i = 0; i < 4; i++) {
+            assertTrue(dispatcher.publish(logger, "queued" + i, null));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertFalse(dispatcher.publish(logger, "dropped" + i, null));
+        }
+        logger.release();
+        assertTrue(dispatcher.flush(5, TimeUnit.SECONDS));
+
+        AsyncLogMetrics metrics = dispatcher.getMetrics();
+        assertEquals(3, metrics.getDroppedCount());
+        assertEquals(5, metrics.getWrittenCount());
+        assertEquals(5, logger.events.size());
+    }
+
+    @Test
+    void samplePolicyKeepsOneInRateAboveHalfFull() throws InterruptedException {
+        AsyncLogDispatcher dispatcher = create(8, OverflowPolicy.SAMPLE, 2);
+        BlockingLogger logger = new BlockingLogger();
+        assertTrue(dispatcher.publish(logger, "first", null));
+        logger.awaitEntered();
+
+        // 未过半时全部入队
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dispatcher.publish(logger, "below" + i, null));
+        }
+        // 过半后每2条保留1条
+        int accepted = 0;
+        for (int i = 0; i < 6; i++) {
+            if (dispatcher.publish(logger, "above" + i, null)) {
+                accepted++;
+            }
+        }
+        logger.release();
+        assertTrue(dispatcher.flush(5, TimeUnit.SECONDS));
+
+        AsyncLogMetrics metrics = dispatcher.getMetrics();
+        assertEquals(3, accepted);
+        assertEquals(3, metrics.getSampledOutCount());
+        assertEquals(0, metrics.getDroppedCount());
+        assertEquals(7, metrics.getWrittenCount());
+    }
+
+    @Test
+    void blockPolicyWaitsForConsumer() throws InterruptedException {
+        AsyncLogDispatcher dispatcher = create(2, OverflowPolicy.BLOCK, 1);
+        BlockingLogger logger = new BlockingLogger();
+        assertTrue(dispatcher.publish(logger, "first", null));
+        logger.awaitEntered();
+        assertTrue(dispatcher.publish(logger, "queued0", null));
+        assertTrue(dispatcher.publish(logger, "queued1", null));
+
+        AtomicInteger result = new AtomicInteger(-1);
+        Thread producer = new Thread(() -> result.set(dispatcher.publish(logger, "blocked", null) ? 1 : 0));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+        assertTrue(dispatcher.getMetrics().getBlockedCount() > 0);
+
+        logger.release();
+        producer.join(5000);
+        assertEquals(1, result.get());
+        assertTrue(dispatcher.flush(5, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getMetrics().getDroppedCount());
+        assertEquals("blocked", logger.events.get(3).message);
+    }
+
+    @Test
+    void restoresCallerMdcOnConsumerThread() {
+        AsyncLogDispatcher dispatcher = create(8, OverflowPolicy.BLOCK, 1);
+        RecordingLogger logger = new RecordingLogger();
+        String caller = Thread.currentThread().getName();
+        MDC.put("requestId", "r-1");
+        long before = System.currentTimeMillis();
+        assertTrue(dispatcher.publish(logger, "with mdc", null));
+        long after = System.currentTimeMillis();
+        MDC.clear();
+        assertTrue(dispatcher.publish(logger, "without mdc", null));
+        assertTrue(dispatcher.flush(5, TimeUnit.SECONDS));
+
+        Event first = logger.events.get(0);
+        assertNotEquals(caller, first.thread);
+        assertEquals("r-1", first.context.get("requestId"));
+        assertEquals(caller, first.context.get(AsyncLogDispatcher.MDC_THREAD));
+        long timestamp = Long.parseLong(first.context.get(AsyncLogDispatcher.MDC_TIME));
+        assertTrue(timestamp >= before && timestamp <= after);
+
+        // 上一条的MDC不能带到下一条
+        Event second = logger.events.get(1);
+        assertNull(second.context.get("requestId"));
+        assertEquals(caller, second.context.get(AsyncLogDispatcher.MDC_THREAD));
+        assertNull(MDC.get(AsyncLogDispatcher.MDC_THREAD));
+    }
+
+    @Test
+    void appenderErrorDoesNotStopConsumer() {
+        AsyncLogDispatcher dispatcher = create(4, OverflowPolicy.BLOCK, 1);
+        AtomicInteger calls = new AtomicInteger();
+        RecordingLogger logger = new RecordingLogger(message -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new AssertionError("appender failure");
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            assertTrue(dispatcher.publish(logger, "m" + i, null));
+        }
+        assertTrue(dispatcher.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(9, logger.events.size());
+        assertEquals("m1", logger.events.get(0).message);
+        assertEquals(10, dispatcher.getMetrics().getWrittenCount());
+    }
+
+    @Test
+    void shutdownWritesEveryAcceptedEvent() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(16, OverflowPolicy.DROP, 1);
+            RecordingLogger logger = new RecordingLogger();
+            AtomicLong accepted = new AtomicLong();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    // 与shutdown并发时部分生产者会占到槽位后发现已关闭，留下的空槽位必须被消费线程跳过
+                    for (int i = 0; i < 10_000; i++) {
+                        if (dispatcher.publish(logger, "m", null)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            started.await();
+            assertTrue(dispatcher.shutdown(5, TimeUnit.SECONDS));
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertFalse(dispatcher.publish(logger, "after shutdown", null));
+            assertEquals(accepted.get(), dispatcher.getMetrics().getWrittenCount());
+            assertEquals(accepted.get(), logger.events.size());
+        }
+    }
+
+    private AsyncLogDispatcher create(int capacity, OverflowPolicy policy, int sampleRate) {
+        AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(capacity, policy, sampleRate);
+        dispatchers.add(dispatcher);
+        return dispatcher;
+    }
+
+    private static final class Event {
+
+        private final String              message;
+        private final String              thread;
+        private final Map<String, String> context;
+
+        Event(String message, String thread, Map<String, String> context) {
+            this.message = message;
+            this.thread = thread;
+            this.context = context;
+        }
+    }
+
+    /**
+     * 记录写出的日志、写出线程与当时的MDC
+     */
+    private static class RecordingLogger extends LegacyAbstractLogger {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<Event> events = Collections.synchronizedList(new ArrayList<>());
+
+        private final transient Consumer<String> onWrite;
+
+        RecordingLogger() {
+            this(message -> {
+            });
+        }
+
+        RecordingLogger(Consumer<String> onWrite) {
+            this.name = "test";
+            this.onWrite = onWrite;
+        }
+
+        @Override
+        protected void handleNormalizedLoggingCall(Level level, Marker marker, String messagePattern,
+                                                   Object[] arguments, Throwable throwable) {
+            onWrite.accept(messagePattern);
+            events.add(new Event(messagePattern, Thread.currentThread().getName(), MDC.getCopyOfContextMap()));
+        }
+
+        @Override
+        protected String getFullyQualifiedCallerName() {
+            return null;
+        }
+
+        @Override
+        public boolean isTraceEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return true;
+        }
+    }
+
+    /**
+     * 第一次写出时阻塞，直到{@link #release()}
+     */
+    private static final class BlockingLogger extends RecordingLogger {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient CountDownLatch entered  = new CountDownLatch(1);
+        private final transient CountDownLatch released = new CountDownLatch(1);
+
+        BlockingLogger() {
+            super();
+        }
+
+        @Override
+        protected void handleNormalizedLoggingCall(Level level, Marker marker, String messagePattern,
+                                                   Object[] arguments, Throwable throwable) {
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.handleNormalizedLoggingCall(level, marker, messagePattern, arguments, throwable);
+        }
+
+        void awaitEntered() throws InterruptedException {
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+}